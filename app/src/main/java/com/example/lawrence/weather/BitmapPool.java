@@ -0,0 +1,85 @@
+package com.example.lawrence.weather;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+// Bitmaps nobody uses anymore (dropped from the IconCache and not shown by any ImageView),
+// kept so the next icon can be decoded into one of them (BitmapFactory.Options.inBitmap)
+// instead of allocating a new one. Fewer allocations while scrolling means fewer GC pauses.
+// Only mutable bitmaps can be reused. Thread safe: icons are decoded on the IconLoader threads.
+public class BitmapPool {
+
+    private final int maxBitmaps;
+
+    // most recently added last
+    private final LinkedList<Bitmap> bitmaps = new LinkedList<>();
+
+    private int hitCount;
+    private int missCount;
+
+    public BitmapPool(int maxBitmaps) {
+        this.maxBitmaps = maxBitmaps;
+    }
+
+    // keep a bitmap for reuse. the caller must not use it anymore.
+    public synchronized void put(Bitmap bitmap) {
+        if (!bitmap.isMutable() || bitmap.isRecycled()) {
+            return;
+        }
+        bitmaps.addLast(bitmap);
+        if (bitmaps.size() > maxBitmaps) {
+            bitmaps.removeFirst(); // the garbage collector takes it
+        }
+    }
+
+    // a bitmap an image of width x height with config (decoded with inSampleSize) can be decoded
+    // into, or null. the bitmap is removed from the pool.
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config, int inSampleSize) {
+        for (Iterator<Bitmap> iterator = bitmaps.iterator(); iterator.hasNext(); ) {
+            Bitmap bitmap = iterator.next();
+            if (canDecodeInto(bitmap, width, height, config, inSampleSize)) {
+                iterator.remove();
+                hitCount++;
+                return bitmap;
+            }
+        }
+        missCount++;
+        return null;
+    }
+
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BitmapPool[size=" + bitmaps.size() + ",hits=" + hitCount + ",misses=" + missCount + "]";
+    }
+
+    // width and height are the size of the image before sampling
+    private static boolean canDecodeInto(Bitmap bitmap, int width, int height, Bitmap.Config config,
+                                         int inSampleSize) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            // any bitmap that is big enough
+            int sampledWidth = (width + inSampleSize - 1) / inSampleSize;
+            int sampledHeight = (height + inSampleSize - 1) / inSampleSize;
+            return sampledWidth * sampledHeight * bytesPerPixel(config) <= bitmap.getAllocationByteCount();
+        }
+        // before KitKat only unsampled images of exactly the same size and config
+        return inSampleSize == 1 && bitmap.getWidth() == width && bitmap.getHeight() == height
+                && bitmap.getConfig() == config;
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        return config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444 ? 2
+                : config == Bitmap.Config.ALPHA_8 ? 1
+                : 4;
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.lawrence.weather;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentActivity;
+import android.support.v4.app.FragmentManager;
+import android.util.Log;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Runs the forecast downloads for MainActivity and keeps them (and their results) across
+// configuration changes.
+// The activity is destroyed and created again when the device is rotated. A download that was
+// an inner class of the activity kept the old activity alive until it finished, and then showed
+// its result in a screen that was gone. This fragment has no UI and is retained
+// (setRetainInstance()), so the new activity gets the same instance, with the same downloads
+// in flight. The downloads only know the fragment, never an activity; a result that arrives
+// while no activity is attached waits here and is delivered as soon as the new one is.
+// Downloads are cancelled only when the fragment is destroyed for good (the activity finished).
+//
+// The downloads themselves are done by the core's ForecastClient. Every download is retried when
+// it fails for a reason that may go away, and they all share one CircuitBreaker: while
+// OpenWeatherMap.org keeps failing, a download returns the saved forecast right away instead of
+// waiting for a timeout. The outcome reaches the activity as a FetchResult (fresh, cached because
+// the download failed, or failed) on the main UI thread.
+//
+// All methods must be called on the main UI thread.
+public class ForecastRequestFragment extends Fragment {
+
+    private static final String TAG = "forecast_requests";
+
+    // failures in a row before the downloads stop asking the server, and for how long
+    private static final int BREAKER_FAILURES = 3;
+    private static final long BREAKER_OPEN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    // shared by the downloads of every activity, the saved locations refresh and the prefetch
+    // service (getCaller()): the server is down for all of them
+    private static final ResilientCaller sCaller = new ResilientCaller(RetryPolicy.DEFAULT,
+            new CircuitBreaker(Clock.SYSTEM, BREAKER_FAILURES, BREAKER_OPEN_MILLIS),
+            ResilientCaller.THREAD_SLEEPER);
+
+    // implemented by the activity, called on the main UI thread
+    public interface Callbacks {
+        // the saved daily forecast for query (CACHED), or FAILED if there is none
+        void onCachedForecast(String query, FetchResult<ForecastCache.Entry> result);
+
+        void onForecastResult(String query, FetchResult<ForecastCache.Entry> result);
+
+        // a page of the 3 hour forecast for query was saved (city is null until it's known)
+        void onHourlyPage(String query, String city, int page, List<Weather> weathers);
+
+        void onHourlyResult(String query, FetchResult<ForecastPageStore.Index> result);
+    }
+
+    // a result waiting for an activity to deliver it to
+    private interface Delivery {
+        void deliverTo(Callbacks callbacks);
+    }
+
+    private ForecastClient client;
+
+    // "daily:" or "hourly:" + normalized query -> download in flight, so a new activity
+    // asking for the same forecast doesn't start a second one
+    private final Map<String, Future<?>> inFlight = new HashMap<>();
+
+    // normalized query -> entries an hourly download in flight has saved so far
+    private final Map<String, Integer> hourlySaved = new HashMap<>();
+
+    private Callbacks callbacks;
+    private final List<Delivery> pending = new ArrayList<>();
+
+    // the activity's fragment, created the first time
+    public static ForecastRequestFragment get(FragmentActivity activity) {
+        FragmentManager fragmentManager = activity.getSupportFragmentManager();
+        ForecastRequestFragment fragment = (ForecastRequestFragment) fragmentManager.findFragmentByTag(TAG);
+        if (fragment == null) {
+            fragment = new ForecastRequestFragment();
+            fragmentManager.beginTransaction().add(fragment, TAG).commit();
+        }
+        return fragment;
+    }
+
+    // the retries and circuit breaker for every download from OpenWeatherMap.org
+    static ResilientCaller getCaller() {
+        return sCaller;
+    }
+
+    public ForecastRequestFragment() {
+        // keep this instance (and its downloads) when the activity is recreated
+        setRetainInstance(true);
+    }
+
+    // the client is created on first use rather than in onCreate(): a new fragment is only
+    // created once the activity's pending transactions run, after the activity asked for work
+    private void createClient(Context context) {
+        if (client == null) {
+            Context application = context.getApplicationContext();
+            final Handler handler = new Handler(Looper.getMainLooper());
+            Executor mainThread = new Executor() {
+                @Override
+                public void execute(Runnable runnable) {
+                    handler.post(runnable);
+                }
+            };
+            // forecasts run on their own threads, so they don't wait behind icon downloads
+            client = new ForecastClient(MainActivity.createForecastUrls(),
+                    new ForecastFetcher(HttpClient.getDefault(), MainActivity.createForecastCache(application)),
+                    new HourlyForecastFetcher(HttpClient.getDefault(), MainActivity.createPageStore(application),
+                            Clock.SYSTEM),
+                    sCaller, NetworkExecutors.FORECAST, mainThread);
+        }
+    }
+
+    // the activity that gets the results from now on (null when it's destroyed).
+    // results that arrived in between are delivered right away.
+    public void setCallbacks(Callbacks callbacks) {
+        this.callbacks = callbacks;
+        if (callbacks != null) {
+            List<Delivery> deliveries = new ArrayList<>(pending);
+            pending.clear();
+            for (Delivery delivery : deliveries) {
+                delivery.deliverTo(callbacks);
+            }
+        }
+    }
+
+    // read the saved daily forecast for query off the main UI thread
+    public void readCached(Context context, String query) {
+        createClient(context);
+        client.readCached(query, new ForecastClient.Callback<ForecastCache.Entry>() {
+            @Override
+            public void onResult(final String query, final FetchResult<ForecastCache.Entry> result) {
+                deliver(new Delivery() {
+                    @Override
+                    public void deliverTo(Callbacks callbacks) {
+                        callbacks.onCachedForecast(query, result);
+                    }
+                });
+            }
+        });
+    }
+
+    // download the daily forecast for query, unless that download is already running.
+    // returns false if it was.
+    public boolean fetchForecast(Context context, final String query, URL url) {
+        final String key = "daily:" + ForecastCache.normalize(query);
+        if (isInFlight(key)) {
+            return false;
+        }
+        createClient(context);
+        inFlight.put(key, client.fetch(query, url, new ForecastClient.Callback<ForecastCache.Entry>() {
+            @Override
+            public void onResult(String query, final FetchResult<ForecastCache.Entry> result) {
+                finished(key);
+                logFailure(query, result);
+                deliver(new Delivery() {
+                    @Override
+                    public void deliverTo(Callbacks callbacks) {
+                        callbacks.onForecastResult(query, result);
+                    }
+                });
+            }
+        }));
+        return true;
+    }
+
+    // download the 3 hour forecast for query, unless that download is already running.
+    // every page is delivered as soon as it's saved, so the list shows the first rows while the
+    // rest is still downloading.
+    public boolean fetchHourly(Context context, final String query, URL url) {
+        final String key = "hourly:" + ForecastCache.normalize(query);
+        if (isInFlight(key)) {
+            return false;
+        }
+        createClient(context);
+        final String normalized = ForecastCache.normalize(query);
+        hourlySaved.put(normalized, 0);
+        HourlyForecastFetcher.Listener pages = new HourlyForecastFetcher.Listener() {
+            private String city;
+
+            @Override
+            public void onCity(String city) {
+                this.city = city;
+            }
+
+            @Override
+            public void onPage(final int page, final List<Weather> weathers) {
+                if (!inFlight.containsKey(key)) {
+                    return; // cancelled, the page was already on its way
+                }
+                hourlySaved.put(normalized, page * ForecastPageStore.PAGE_SIZE + weathers.size());
+                final String pageCity = city;
+                deliver(new Delivery() {
+                    @Override
+                    public void deliverTo(Callbacks callbacks) {
+                        callbacks.onHourlyPage(query, pageCity, page, weathers);
+                    }
+                });
+            }
+        };
+        inFlight.put(key, client.fetchHourly(query, url, pages, new ForecastClient.Callback<ForecastPageStore.Index>() {
+            @Override
+            public void onResult(String query, final FetchResult<ForecastPageStore.Index> result) {
+                if (finished(key)) {
+                    hourlySaved.remove(normalized);
+                }
+                logFailure(query, result);
+                deliver(new Delivery() {
+                    @Override
+                    public void deliverTo(Callbacks callbacks) {
+                        callbacks.onHourlyResult(query, result);
+                    }
+                });
+            }
+        }));
+        return true;
+    }
+
+    // entries the hourly download for query has saved so far (the list can read those pages
+    // from ForecastPageStore), or -1 if it isn't downloading
+    public int getHourlySaved(String query) {
+        String normalized = ForecastCache.normalize(query);
+        Integer saved = hourlySaved.get(normalized);
+        return saved != null && isInFlight("hourly:" + normalized) ? saved : -1;
+    }
+
+    // the activity finished (not just rotated), nobody is waiting for the downloads anymore
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        for (Future<?> download : inFlight.values()) {
+            download.cancel(true); // also interrupts a wait between retries
+        }
+        inFlight.clear();
+        hourlySaved.clear();
+        pending.clear();
+        callbacks = null;
+    }
+
+    private void deliver(Delivery delivery) {
+        if (callbacks != null) {
+            delivery.deliverTo(callbacks);
+        } else {
+            pending.add(delivery); // between two activities, wait for the next one
+        }
+    }
+
+    // false once the download is done (a download the executor dropped to make room for newer
+    // ones is done too, its result is a FAILED one on its way to the callback)
+    private boolean isInFlight(String key) {
+        Future<?> download = inFlight.get(key);
+        return download != null && !download.isDone();
+    }
+
+    // forget the download that delivered its result, unless a newer one for the same key has
+    // started since. returns true if it was forgotten.
+    private boolean finished(String key) {
+        if (isInFlight(key)) {
+            return false;
+        }
+        inFlight.remove(key);
+        return true;
+    }
+
+    private static void logFailure(String query, FetchResult<?> result) {
+        if (result.getError() != null) {
+            Log.w(TAG, query + ": " + result, result.getError());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.lawrence.weather;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+// The adapter for the hourly (3 hour) forecast, bound to the same rows as WeatherAdapter.
+// The entries come in pages (ForecastPageStore.PAGE_SIZE each): while a forecast downloads,
+// every page is inserted as soon as it's parsed (onPage()), so the first rows show up before
+// the rest of the response has arrived. Only the last few pages that were bound stay in memory
+// (PagedForecast); scrolling back to a page that was dropped reads it from disk again.
+public class HourlyWeatherAdapter extends RecyclerView.Adapter<WeatherAdapter.ViewHolder>
+        implements PagedForecast.PageLoader {
+
+    // pages kept in memory: the ones on screen and the ones around them
+    private static final int MAX_PAGES_IN_MEMORY = 4;
+
+    // pages are read from disk one at a time, in the order they were asked for. during a fast
+    // fling the oldest waiting read (most likely for rows that are gone again) is dropped.
+    private static final Executor PAGE_EXECUTOR = NetworkExecutors.newPool("pages", 1, 16);
+
+    private final Context context;
+    private final IconLoader iconLoader;
+    private final ForecastPageStore store;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final PagedForecast forecast = new PagedForecast(ForecastPageStore.PAGE_SIZE, MAX_PAGES_IN_MEMORY, this);
+
+    // the (normalized) query of the forecast on screen, null if none
+    private String query;
+
+    // bumped for every show(), so pages read for an older forecast are ignored
+    private int generation;
+
+    // unit the temperatures are shown in (the Weather objects are always in Fahrenheit)
+    private TemperatureUnit temperatureUnit = TemperatureUnit.FAHRENHEIT;
+
+    public HourlyWeatherAdapter(Context context, ForecastPageStore store) {
+        this.context = context;
+        this.store = store;
+        iconLoader = IconLoader.getInstance(context);
+    }
+
+    // show the forecast saved for query, with count entries (0 if a download just started)
+    public void show(String query, int count) {
+        this.query = ForecastCache.normalize(query);
+        generation++;
+        forecast.reset(count);
+        notifyDataSetChanged();
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    // a page of a download for query was parsed and saved: show it right away
+    public void onPage(String query, int page, List<Weather> weathers) {
+        if (!ForecastCache.normalize(query).equals(this.query)) {
+            return; // the user moved on to another city
+        }
+
+        long start = System.nanoTime(); // see Metrics.ADAPTER_NOTIFY
+        int first = forecast.positionOf(page);
+        int before = forecast.size();
+        int added = forecast.append(page, weathers);
+
+        // a refresh replaces the rows of the page that are already shown, and may add new ones
+        int replaced = Math.min(weathers.size(), before - first);
+        if (replaced > 0) {
+            notifyItemRangeChanged(first, replaced);
+        }
+        if (added > 0) {
+            notifyItemRangeInserted(before, added);
+        }
+        Metrics.ADAPTER_NOTIFY.recordSince(start);
+    }
+
+    // the download for query is complete and has count entries
+    public void onFinished(String query, int count) {
+        if (ForecastCache.normalize(query).equals(this.query) && count < forecast.size()) {
+            // the new forecast is shorter than the one it replaced
+            int removed = forecast.size() - count;
+            forecast.truncate(count);
+            notifyItemRangeRemoved(count, removed);
+        }
+    }
+
+    // read a page that was dropped from memory (or was never loaded) back from disk. a FutureTask,
+    // so a read dropped from the full queue is cancelled and the page can be asked for again.
+    @Override
+    public void load(final int page) {
+        final String pageQuery = query;
+        final int pageGeneration = generation;
+        PAGE_EXECUTOR.execute(new FutureTask<List<Weather>>(new Callable<List<Weather>>() {
+            @Override
+            public List<Weather> call() throws IOException {
+                return store.readPage(pageQuery, page);
+            }
+        }) {
+            @Override
+            protected void done() {
+                List<Weather> read = null;
+                try {
+                    read = get();
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace(); // the rows stay empty until they're bound again
+                } catch (CancellationException | InterruptedException e) {
+                    // dropped from the queue
+                }
+
+                final List<Weather> weathers = read;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (pageGeneration != generation) {
+                            return;
+                        }
+                        if (weathers != null) {
+                            forecast.onPageLoaded(page, weathers);
+                            notifyItemRangeChanged(forecast.positionOf(page), weathers.size());
+                        } else {
+                            forecast.onPageFailed(page);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    // show the temperatures in another unit. the rows are formatted again, nothing is re-downloaded.
+    public void setTemperatureUnit(TemperatureUnit unit) {
+        temperatureUnit = unit;
+        notifyItemRangeChanged(0, forecast.size());
+    }
+
+    @Override
+    public int getItemCount() {
+        return forecast.size();
+    }
+
+    // a new row: inflate the layout and find its views once
+    @Override
+    public WeatherAdapter.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(context).inflate(R.layout.list_item, parent, false);
+        return new WeatherAdapter.ViewHolder(view);
+    }
+
+    // show the entry at position, or an empty row until its page is read back
+    @Override
+    public void onBindViewHolder(WeatherAdapter.ViewHolder viewHolder, int position) {
+        long start = System.nanoTime(); // see Metrics.BIND
+        Weather weather = forecast.get(position);
+        if (weather == null) {
+            viewHolder.clear(iconLoader);
+            return;
+        }
+
+        viewHolder.bind(weather,
+                context.getString(R.string.hour_description,
+                        weather.getDayOfWeek(), weather.getTimeOfDay(), weather.getDescription()),
+                temperatureUnit, iconLoader);
+        Metrics.BIND.recordSince(start);
+    }
+
+    @Override
+    public void onViewRecycled(WeatherAdapter.ViewHolder viewHolder) {
+        viewHolder.cancelIcon();
+    }
+
+    // get the pages (and icons) of the rows that are about to scroll into view ready
+    public void prefetch(int from, int count) {
+        int end = Math.min(from + count, forecast.size());
+        for (int position = Math.max(from, 0); position < end; ++position) {
+            Weather weather = forecast.get(position); // starts reading the page if it isn't in memory
+            if (weather != null) {
+                iconLoader.prefetch(weather);
+            }
+        }
+    }
+}
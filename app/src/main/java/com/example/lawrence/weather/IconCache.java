@@ -0,0 +1,261 @@
+package com.example.lawrence.weather;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Two level cache for the weather icons:
+//   1. memory: decoded Bitmaps in an LRU cache that is limited by the number of bytes used,
+//      so scrolling a long list can't use up all of the app's memory.
+//   2. disk: the raw PNG bytes, so icons survive the app being killed and don't have to be
+//      downloaded again on the next start.
+// There is only one IconCache per process (see getInstance()), shared by all the adapters.
+//
+// Icons are decoded by an IconDecoder: sampled to the size they are shown at, into bitmaps
+// from a BitmapPool. A bitmap dropped from the memory cache goes back to the pool, but only
+// once nobody holds it anymore (IconLoader reports that through retain()/release()),
+// otherwise the next decode would draw over an icon that is on screen. A bitmap is held from
+// the moment it comes out of the cache, also while it is on its way to the main UI thread.
+public class IconCache {
+    private static final String TAG = IconCache.class.getSimpleName();
+
+    private static IconCache sInstance;
+
+    private final LruMemoryCache<String, Bitmap> memoryCache;
+    private final File diskDirectory;
+    private final BitmapPool pool;
+    private final IconDecoder decoder;
+
+    // bitmap -> number of holders (ImageViews showing it, loads handing it to them). bitmaps
+    // that were evicted from the memory cache while they were held are in evictedWhileShown
+    // until the last holder lets go.
+    private final Map<Bitmap, Integer> shownCounts = new IdentityHashMap<>();
+    private final Map<Bitmap, Boolean> evictedWhileShown = new IdentityHashMap<>();
+
+    // a handful of bitmaps is enough, scrolling only needs a few icons at a time
+    private static final int POOL_SIZE = 8;
+
+    // disk counters (the memory counters are kept by LruMemoryCache)
+    private final AtomicInteger diskHitCount = new AtomicInteger();
+    private final AtomicInteger diskMissCount = new AtomicInteger();
+
+    public static synchronized IconCache getInstance(Context context) {
+        if (sInstance == null) {
+            // use 1/32 of the app's heap for icons. each icon is only a few KB, so this is
+            // plenty for every condition code, but still bounded on low memory devices.
+            int maxBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 32, Integer.MAX_VALUE);
+            File directory = new File(context.getApplicationContext().getCacheDir(), "icons");
+            int iconSizePx = context.getResources().getDimensionPixelSize(R.dimen.image_side_length);
+            sInstance = new IconCache(maxBytes, directory, iconSizePx);
+        }
+        return sInstance;
+    }
+
+    IconCache(int maxBytes, File diskDirectory, int iconSizePx) {
+        this.diskDirectory = diskDirectory;
+        this.pool = new BitmapPool(POOL_SIZE);
+        this.decoder = new IconDecoder(iconSizePx, pool);
+        this.memoryCache = new LruMemoryCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String url, Bitmap bitmap) {
+                return bitmap.getRowBytes() * bitmap.getHeight();
+            }
+
+            @Override
+            protected void entryEvicted(String url, Bitmap bitmap) {
+                recycle(bitmap);
+            }
+        };
+    }
+
+    // decode downloaded PNG bytes (see IconDecoder). don't call this on the main UI thread.
+    public Bitmap decode(byte[] pngBytes) {
+        return decoder.decode(pngBytes);
+    }
+
+    // an ImageView shows bitmap now, or a load holds it for one (any thread)
+    public void retain(Bitmap bitmap) {
+        synchronized (shownCounts) {
+            Integer count = shownCounts.get(bitmap);
+            shownCounts.put(bitmap, count == null ? 1 : count + 1);
+        }
+    }
+
+    // the ImageView or load doesn't hold bitmap anymore (any thread)
+    public void release(Bitmap bitmap) {
+        synchronized (shownCounts) {
+            Integer count = shownCounts.get(bitmap);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                shownCounts.put(bitmap, count - 1);
+                return;
+            }
+            shownCounts.remove(bitmap);
+            if (evictedWhileShown.remove(bitmap) != null) {
+                pool.put(bitmap);
+            }
+        }
+    }
+
+    // the memory cache dropped bitmap: reuse it now, or when the last holder lets go of it
+    private void recycle(Bitmap bitmap) {
+        synchronized (shownCounts) {
+            if (shownCounts.containsKey(bitmap)) {
+                evictedWhileShown.put(bitmap, Boolean.TRUE);
+            } else {
+                pool.put(bitmap);
+            }
+        }
+    }
+
+    // fast check, safe to call on the main UI thread
+    public Bitmap getFromMemory(String url) {
+        return memoryCache.get(url);
+    }
+
+    // like getFromMemory(), but the bitmap is retained before another thread can evict it.
+    // the caller has to release() it. (the memory cache evicts while holding its own lock)
+    public Bitmap retainFromMemory(String url) {
+        synchronized (memoryCache) {
+            Bitmap bitmap = memoryCache.get(url);
+            if (bitmap != null) {
+                retain(bitmap);
+            }
+            return bitmap;
+        }
+    }
+
+    // reads and decodes the icon from disk. don't call this on the main UI thread.
+    // the bitmap is retained, the caller has to release() it.
+    public Bitmap getFromDisk(String url) {
+        File file = fileFor(url);
+        if (!file.exists()) {
+            diskMissCount.incrementAndGet();
+            return null;
+        }
+
+        try {
+            byte[] bytes = readFully(new FileInputStream(file));
+            Bitmap bitmap = decoder.decode(bytes);
+            if (bitmap == null) {
+                // not a valid image anymore, get rid of it
+                file.delete();
+                diskMissCount.incrementAndGet();
+                return null;
+            }
+
+            diskHitCount.incrementAndGet();
+            retain(bitmap); // before it is in the cache, where another put could evict it
+            memoryCache.put(url, bitmap);
+            return bitmap;
+        } catch (IOException e) {
+            e.printStackTrace();
+            diskMissCount.incrementAndGet();
+            return null;
+        } catch (RuntimeException e) {
+            // the decoder choked on a broken file, get rid of it so it's downloaded again
+            e.printStackTrace();
+            file.delete();
+            diskMissCount.incrementAndGet();
+            return null;
+        }
+    }
+
+    // save a freshly downloaded icon in both levels. don't call this on the main UI thread.
+    // like getFromDisk(), bitmap is retained and the caller has to release() it.
+    public void put(String url, byte[] pngBytes, Bitmap bitmap) {
+        retain(bitmap);
+        memoryCache.put(url, bitmap);
+        putOnDisk(url, pngBytes);
+    }
+
+    // save only the PNG bytes (e.g. for an icon that was downloaded but isn't needed right now)
+    public void putOnDisk(String url, byte[] pngBytes) {
+        if (!diskDirectory.isDirectory() && !diskDirectory.mkdirs()) {
+            return;
+        }
+
+        // write to a temp file and rename it, so other threads never read half a PNG
+        File file = fileFor(url);
+        File temp = new File(diskDirectory, file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(temp);
+            out.write(pngBytes);
+            out.close();
+            out = null;
+            if (!temp.renameTo(file)) {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            temp.delete();
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    public int getMemoryHitCount() {
+        return memoryCache.hitCount();
+    }
+
+    public int getMemoryMissCount() {
+        return memoryCache.missCount();
+    }
+
+    public int getMemoryEvictionCount() {
+        return memoryCache.evictionCount();
+    }
+
+    public int getDiskHitCount() {
+        return diskHitCount.get();
+    }
+
+    public int getDiskMissCount() {
+        return diskMissCount.get();
+    }
+
+    // write the cache counters to Logcat
+    public void logStats() {
+        Log.d(TAG, memoryCache + " disk[hits=" + diskHitCount + ",misses=" + diskMissCount + "] " + pool);
+    }
+
+    // icon urls look like "http://openweathermap.org/img/w/10d.png", the last part is unique enough
+    private File fileFor(String url) {
+        String name = url.substring(url.lastIndexOf('/') + 1);
+        return new File(diskDirectory, Integer.toHexString(url.hashCode()) + "_" + name);
+    }
+
+    static byte[] readFully(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.lawrence.weather;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+// Decodes downloaded icons (PNG bytes) for the list rows, on a background thread.
+// BitmapFactory.decodeByteArray() with the default options decodes at full size in ARGB_8888
+// into a newly allocated Bitmap. Instead:
+//   - the image is sampled down (inSampleSize) to the size the ImageView shows it at, so an
+//     icon only takes the memory of the pixels on screen;
+//   - PNGs without transparency are decoded as RGB_565 (2 bytes per pixel instead of 4).
+//     OpenWeatherMap's icons have an alpha channel, so those stay ARGB_8888;
+//   - the pixels go into a Bitmap from the BitmapPool when there's one that fits (inBitmap).
+public class IconDecoder {
+
+    private final int targetSizePx;
+    private final BitmapPool pool;
+
+    public IconDecoder(int targetSizePx, BitmapPool pool) {
+        this.targetSizePx = targetSizePx;
+        this.pool = pool;
+    }
+
+    // returns the decoded icon, or null if the bytes aren't an image
+    public Bitmap decode(byte[] bytes) {
+        // read only the size first (no pixels are allocated)
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, targetSizePx, targetSizePx);
+        options.inPreferredConfig = isOpaquePng(bytes) ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        options.inMutable = true; // so it can go back to the pool later
+        options.inBitmap = pool.get(options.outWidth, options.outHeight, options.inPreferredConfig,
+                options.inSampleSize);
+
+        try {
+            return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        } catch (IllegalArgumentException e) {
+            // the pooled bitmap didn't fit after all, decode into a new one
+            options.inBitmap = null;
+            return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        }
+    }
+
+    // the largest power of two that keeps both sides at least as big as the requested size
+    // (BitmapFactory only samples by powers of two)
+    static int calculateInSampleSize(int width, int height, int requestedWidth, int requestedHeight) {
+        int inSampleSize = 1;
+        while (width / (inSampleSize * 2) >= requestedWidth && height / (inSampleSize * 2) >= requestedHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    // true if the bytes are a PNG without any transparency: grayscale or RGB without alpha,
+    // and no tRNS chunk (which adds a transparent color to those, or to a palette).
+    static boolean isOpaquePng(byte[] bytes) {
+        // signature (8) + IHDR length (4) + "IHDR" (4) + width, height (8) + bit depth (1) + color type (1)
+        if (bytes.length < 26 || (bytes[0] & 0xff) != 0x89 || bytes[1] != 'P' || bytes[2] != 'N' || bytes[3] != 'G') {
+            return false; // not a PNG, keep the default
+        }
+        int colorType = bytes[25];
+        if (colorType != 0 && colorType != 2 && colorType != 3) {
+            return false; // 4 = gray + alpha, 6 = RGBA
+        }
+
+        // walk the chunks up to the image data, a tRNS chunk comes before it
+        int offset = 8;
+        while (offset + 8 <= bytes.length) {
+            int length = ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16)
+                    | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+            if (isChunk(bytes, offset, "tRNS")) {
+                return false;
+            }
+            if (isChunk(bytes, offset, "IDAT")) {
+                return true;
+            }
+            if (length < 0 || length > bytes.length - offset - 12) {
+                return false; // the chunk runs past the end (or offset would overflow), a broken file
+            }
+            offset += 12 + length; // length, type, data, CRC
+        }
+        return true;
+    }
+
+    private static boolean isChunk(byte[] bytes, int offset, String type) {
+        for (int i = 0; i < 4; ++i) {
+            if (bytes[offset + 4 + i] != type.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.lawrence.weather;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.AsyncTask;
+import android.util.Log;
+import android.widget.ImageView;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// Loads weather icons into ImageViews. Known condition codes come from the icons bundled with
+// the app (IconProvider), anything else from IconCache if possible, otherwise from the network.
+// When a list first binds (or scrolls fast) many rows ask for the same icon (e.g. "10d.png")
+// before the first download has finished. Instead of downloading it once per row, we keep a
+// registry of downloads that are in progress and add the new ImageView to the existing one.
+// When that download finishes, every waiting ImageView gets the same Bitmap.
+//
+// load() returns a Request that the caller keeps (e.g. in its ViewHolder). When a recycled row
+// is bound to another day the old Request is cancelled, so a late download can't put the wrong
+// icon in the row, and a download that nobody is waiting for anymore is cancelled before it
+// spends time decoding.
+//
+// All public methods must be called on the main UI thread.
+public class IconLoader {
+    private static final String TAG = IconLoader.class.getSimpleName();
+
+    private static IconLoader sInstance;
+
+    private final IconProvider iconProvider;
+    private final IconCache iconCache;
+
+    // ImageView -> the icon it shows, so IconCache knows which bitmaps are still on screen
+    // (see IconCache.retain()). weak keys: a view that's gone just stops counting.
+    private final Map<ImageView, Bitmap> shown = new WeakHashMap<>();
+
+    // url -> download in progress. only touched on the main UI thread, so no locking needed.
+    private final Map<String, LoadImageTask> inFlight = new HashMap<>();
+
+    // how many downloads we started vs. how many requests piggybacked on one,
+    // and how many were cancelled because their rows were recycled
+    private int loadCount;
+    private int coalescedCount;
+    private int cancelledCount;
+
+    // a pending icon for one ImageView. cancel() it when the view is reused for something else.
+    public class Request {
+        private final ImageView imageView;
+        private LoadImageTask task;
+
+        private Request(ImageView imageView, LoadImageTask task) {
+            this.imageView = imageView;
+            this.task = task;
+        }
+
+        // stop waiting for the icon. safe to call more than once, or after the icon arrived.
+        public void cancel() {
+            if (task != null) {
+                task.detach(this);
+                task = null;
+            }
+        }
+    }
+
+    public static synchronized IconLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new IconLoader(IconProvider.getInstance(context), IconCache.getInstance(context));
+        }
+        return sInstance;
+    }
+
+    private IconLoader(IconProvider iconProvider, IconCache iconCache) {
+        this.iconProvider = iconProvider;
+        this.iconCache = iconCache;
+    }
+
+    // show the weather's condition icon in imageView.
+    // returns the pending Request, or null if the icon was already in memory and has been set.
+    public Request load(Weather weather, ImageView imageView) {
+        // most conditions have an icon bundled with the app, no I/O needed
+        Bitmap icon = iconProvider.getBundled(weather.getIconName());
+        if (icon != null) {
+            show(imageView, icon);
+            return null;
+        }
+
+        // unknown condition code, check memory cache for icon image
+        String url = weather.getIconURL();
+        icon = iconCache.retainFromMemory(url);
+        if (icon != null) {
+            // set image from cache if downloaded before. the view holds it now.
+            show(imageView, icon);
+            iconCache.release(icon);
+            return null;
+        }
+
+        show(imageView, null);
+
+        LoadImageTask task = inFlight.get(url);
+        if (task != null) {
+            // someone already asked for this icon, just wait for that download
+            coalescedCount++;
+        } else {
+            // new thread to load the icon from disk or download it
+            task = new LoadImageTask(url);
+            inFlight.put(url, task);
+            loadCount++;
+            // icons have their own threads, so they don't wait behind a slow forecast download
+            task.executeOnExecutor(NetworkExecutors.ICONS);
+        }
+
+        Request request = new Request(imageView, task);
+        task.requests.add(request);
+        return request;
+    }
+
+    // get the icon into memory before a row needs it (e.g. for rows about to scroll into view)
+    public void prefetch(Weather weather) {
+        if (iconProvider.getBundled(weather.getIconName()) != null) {
+            return;
+        }
+
+        String url = weather.getIconURL();
+        if (inFlight.containsKey(url) || iconCache.getFromMemory(url) != null) {
+            return;
+        }
+
+        // a task nobody waits for yet. rows bound before it finishes join it in load().
+        LoadImageTask task = new LoadImageTask(url);
+        inFlight.put(url, task);
+        loadCount++;
+        task.executeOnExecutor(NetworkExecutors.ICONS);
+    }
+
+    // an empty row: take the icon out of imageView, so the IconCache can reuse its bitmap
+    public void clear(ImageView imageView) {
+        show(imageView, null);
+    }
+
+    // set icon (or nothing) in imageView, and tell the IconCache which bitmap it let go of
+    private void show(ImageView imageView, Bitmap icon) {
+        Bitmap previous = icon != null ? shown.put(imageView, icon) : shown.remove(imageView);
+        if (previous != icon) {
+            if (icon != null) {
+                iconCache.retain(icon);
+            }
+            if (previous != null) {
+                iconCache.release(previous);
+            }
+        }
+
+        if (icon != null) {
+            imageView.setImageBitmap(icon);
+        } else {
+            imageView.setImageDrawable(null);
+        }
+    }
+
+    // write the counters to Logcat (Log calls are stripped from release builds)
+    public void logStats() {
+        Log.d(TAG, "icon loads=" + loadCount + ", coalesced=" + coalescedCount
+                + ", cancelled=" + cancelledCount + ", in flight=" + inFlight.size());
+        iconCache.logStats();
+    }
+
+    // AsyncTask to load weather icon in separate thread
+    // AysncTask abstract the details of the creating/executing threads from you.
+    private class LoadImageTask extends AsyncTask<Void, Void, Bitmap> {
+        private final String iconURL;
+
+        // requests (ImageViews) waiting for this icon. only touched on the main UI thread.
+        private final List<Request> requests = new ArrayList<>();
+
+        public LoadImageTask(String iconURL) {
+            this.iconURL = iconURL;
+        }
+
+        // a row doesn't want this icon anymore. if it was the last one, stop the task.
+        void detach(Request request) {
+            requests.remove(request);
+            if (requests.isEmpty() && getStatus() != Status.FINISHED) {
+                cancel(false);
+                cancelledCount++;
+
+                // a new request for the url has to start a new task
+                if (inFlight.get(iconURL) == this) {
+                    inFlight.remove(iconURL);
+                }
+            }
+        }
+
+        // the icon comes back retained (see IconCache.getFromDisk()), so it can't be evicted and
+        // reused before onPostExecute() shows it. onPostExecute() or onCancelled() releases it.
+        @Override
+        protected Bitmap doInBackground(Void... params) {
+            // nobody is waiting anymore (the row scrolled away before we got to run)
+            if (isCancelled()) {
+                return null;
+            }
+
+            long start = System.nanoTime();
+
+            // downloaded before? (e.g. in an earlier run of the app)
+            Bitmap icon = iconCache.getFromDisk(iconURL);
+            if (icon != null) {
+                Metrics.ICON_LOAD.recordSince(start);
+                return icon;
+            }
+
+            HttpClient.Response response = null;
+
+            try{
+                // reuses an open connection to openweathermap.org if there is one
+                response = HttpClient.getDefault().get(new URL(iconURL));
+
+                if (response.isOk()) {
+                    // keep the PNG bytes so they can be saved in the disk cache
+                    byte[] pngBytes = IconCache.readFully(response.getBody());
+
+                    if (isCancelled()) {
+                        // we already paid for the download, so keep the bytes on disk,
+                        // but don't spend time decoding an icon nobody will see
+                        iconCache.putOnDisk(iconURL, pngBytes);
+                        return null;
+                    }
+
+                    // sampled to the row's icon size, into a pooled bitmap if possible
+                    icon = iconCache.decode(pngBytes);
+                    if (icon != null) {
+                        iconCache.put(iconURL, pngBytes, icon);         // cache icon
+                        Metrics.ICON_LOAD.recordSince(start);
+                    }
+                }
+
+            } catch (Exception e){
+                e.printStackTrace();
+            } finally {
+                if (response != null) {
+                    try {
+                        response.close();    // give the connection back for reuse
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+
+            // return the weather icon
+            return icon;
+        }
+
+        // hand the icon to every ImageView that asked for it (runs on the main UI thread)
+        @Override
+        protected void onPostExecute(Bitmap icon) {
+            inFlight.remove(iconURL);
+            for (Request request : requests) {
+                if (icon != null) {
+                    show(request.imageView, icon);
+                }
+                request.task = null; // done, nothing left to cancel
+            }
+            requests.clear();
+            if (icon != null) {
+                iconCache.release(icon); // the views hold it now
+            }
+        }
+
+        // runs instead of onPostExecute() if the task was cancelled, either by detach() or
+        // because NetworkExecutors.ICONS was full and dropped it
+        @Override
+        protected void onCancelled(Bitmap icon) {
+            if (inFlight.get(iconURL) == this) {
+                inFlight.remove(iconURL);
+            }
+            for (Request request : requests) {
+                request.task = null;
+            }
+            requests.clear();
+            if (icon != null) {
+                iconCache.release(icon); // cancelled after it got the icon, nobody shows it
+            }
+        }
+    } // end LoadImageTask inner class
+}
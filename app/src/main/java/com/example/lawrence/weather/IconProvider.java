@@ -0,0 +1,106 @@
+package com.example.lawrence.weather;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.os.AsyncTask;
+import android.support.v4.content.ContextCompat;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// OpenWeatherMap only uses a small, fixed set of condition icons ("01d" .. "50n", see
+// http://openweathermap.org/weather-conditions), so we ship our own versions of them in
+// res/drawable instead of downloading them. Each drawable is drawn into a Bitmap of the
+// list_item's icon size once, so binding a row is just a map lookup.
+// Icon codes we don't know about return null and are downloaded by IconLoader as before.
+public class IconProvider {
+
+    // icon code -> bundled drawable
+    private static final Map<String, Integer> BUNDLED_ICONS = new HashMap<>();
+    static {
+        BUNDLED_ICONS.put("01d", R.drawable.weather_clear_day);
+        BUNDLED_ICONS.put("01n", R.drawable.weather_clear_night);
+        BUNDLED_ICONS.put("02d", R.drawable.weather_few_clouds_day);
+        BUNDLED_ICONS.put("02n", R.drawable.weather_few_clouds_night);
+        BUNDLED_ICONS.put("03d", R.drawable.weather_clouds);
+        BUNDLED_ICONS.put("03n", R.drawable.weather_clouds);
+        BUNDLED_ICONS.put("04d", R.drawable.weather_broken_clouds);
+        BUNDLED_ICONS.put("04n", R.drawable.weather_broken_clouds);
+        BUNDLED_ICONS.put("09d", R.drawable.weather_shower_rain);
+        BUNDLED_ICONS.put("09n", R.drawable.weather_shower_rain);
+        BUNDLED_ICONS.put("10d", R.drawable.weather_rain_day);
+        BUNDLED_ICONS.put("10n", R.drawable.weather_rain_night);
+        BUNDLED_ICONS.put("11d", R.drawable.weather_thunderstorm);
+        BUNDLED_ICONS.put("11n", R.drawable.weather_thunderstorm);
+        BUNDLED_ICONS.put("13d", R.drawable.weather_snow);
+        BUNDLED_ICONS.put("13n", R.drawable.weather_snow);
+        BUNDLED_ICONS.put("50d", R.drawable.weather_mist);
+        BUNDLED_ICONS.put("50n", R.drawable.weather_mist);
+    }
+
+    private static IconProvider sInstance;
+
+    private final Context context;
+    private final int sizePx; // icon size in pixels for this screen
+
+    // drawable id -> drawn Bitmap. filled by prewarm() on a background thread and read on
+    // the main UI thread, so it has to be a concurrent map.
+    private final Map<Integer, Bitmap> bitmaps = new ConcurrentHashMap<>();
+
+    public static synchronized IconProvider getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new IconProvider(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private IconProvider(Context context) {
+        this.context = context;
+        this.sizePx = context.getResources().getDimensionPixelSize(R.dimen.image_side_length);
+    }
+
+    // draw all the bundled icons in a background thread, so they're ready for the first bind.
+    // call this as early as possible (e.g. in onCreate()).
+    public void prewarm() {
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Integer drawableId : new HashSet<>(BUNDLED_ICONS.values())) {
+                    if (!bitmaps.containsKey(drawableId)) {
+                        bitmaps.put(drawableId, draw(drawableId));
+                    }
+                }
+            }
+        });
+    }
+
+    // returns the bundled icon for an OpenWeatherMap icon code (e.g. "10d"),
+    // or null if we don't ship one for that code.
+    public Bitmap getBundled(String iconName) {
+        Integer drawableId = BUNDLED_ICONS.get(iconName);
+        if (drawableId == null) {
+            return null;
+        }
+
+        Bitmap bitmap = bitmaps.get(drawableId);
+        if (bitmap == null) {
+            // asked for before prewarm() got to it, just draw this one now
+            bitmap = draw(drawableId);
+            bitmaps.put(drawableId, bitmap);
+        }
+        return bitmap;
+    }
+
+    private Bitmap draw(int drawableId) {
+        // mutate() so setBounds() doesn't affect other users of the same drawable
+        Drawable drawable = ContextCompat.getDrawable(context, drawableId).mutate();
+        Bitmap bitmap = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.ARGB_8888);
+        drawable.setBounds(0, 0, sizePx, sizePx);
+        drawable.draw(new Canvas(bitmap));
+        return bitmap;
+    }
+}
@@ -1,53 +1,115 @@
 package com.example.lawrence.weather;
 
 import android.content.Context;
+import android.content.Intent;
+import android.preference.PreferenceManager;
 import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.design.widget.FloatingActionButton;
 import android.support.design.widget.Snackbar;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.Toolbar;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.view.inputmethod.InputMethodManager;
-import android.widget.EditText;
-import android.widget.ListView;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.AutoCompleteTextView;
 import android.widget.TextView;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileDescriptor;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.ref.WeakReference;
 import java.net.URL;
-import java.net.URLEncoder;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 // This is the controller layer for the app.
-// It has most of the logic for downloading JSON data from API.
+// It decides what to show and when to download it; the downloads themselves run in
+// ForecastRequestFragment, so they survive rotation (decoding the JSON is done by ForecastParser).
 // ...
-public class MainActivity extends AppCompatActivity {
+public class MainActivity extends AppCompatActivity implements ForecastRequestFragment.Callbacks {
     private static final String TAG = MainActivity.class.getSimpleName();
 
-    // stores Weather objects, 1 object for each "day" in the JSON data.
-    private List<Weather> mWeatherList = new ArrayList<>();
+    // adapter for binding Weather objects (1 for each "day" in the JSON data) to the RecyclerView
+    private WeatherAdapter mWeatherAdapter;
 
-    // ArrayAdapter for binding Weather objects to a ListView
-    private WeatherArrayAdapter mWeatherArrayAdapter;
+    // adapter for the 3 hour forecast, in pages (see ForecastPageStore)
+    private HourlyWeatherAdapter mHourlyAdapter;
 
-    // ListView container widget
-    private ListView mWeatherListView;
-    private EditText mLocationEditText;
+    // RecyclerView container widget
+    private RecyclerView mWeatherRecyclerView;
+    private AutoCompleteTextView mLocationEditText;
     private TextView mLocationTextView;
     private TextView mTimeUpdatedTextView;
 
+    // downloaded forecasts saved on disk, keyed by the normalized city query
+    private ForecastCache mForecastCache;
+
+    // the 3 hour forecasts, saved and downloaded a page at a time
+    private ForecastPageStore mPageStore;
+
+    // downloads the forecasts into mForecastCache and mPageStore. it's retained, so downloads
+    // (and their results) survive the activity being recreated on rotation.
+    private ForecastRequestFragment mRequests;
+    private final ForecastUrls mForecastUrls = createForecastUrls();
+
+    // suggestions for the location field from the bundled city list, null until it's loaded
+    private CitySearch mCitySearch;
+    private ArrayAdapter<CityIndex.City> mSuggestionsAdapter;
+
+    // the query of the forecast on screen, for "Save location"
+    private String mCurrentQuery;
+
+    // the (normalized) query of the forecast on screen, a refresh of the same city is merged
+    private String mShownQuery;
+
+    private static final int REQUEST_SAVED_LOCATION = 1;
+
+    // rows past the visible ones whose icons are loaded ahead while scrolling
+    private static final int PREFETCH_ROWS = 8;
+
+    // wait this long after the last keystroke before looking up suggestions
+    private static final long SUGGESTION_DELAY_MILLIS = 150;
+    private static final int MAX_SUGGESTIONS = 8;
+
+    // the index of the bundled city list, loaded once for the whole app (see loadCityIndex())
+    private static CityIndex sCityIndex;
+
+    // runs the (debounced) suggestion lookups, one at a time
+    private static final ScheduledThreadPoolExecutor SEARCH_EXECUTOR = new ScheduledThreadPoolExecutor(1);
+
+    static {
+        SEARCH_EXECUTOR.setKeepAliveTime(30, TimeUnit.SECONDS);
+        SEARCH_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    // remember the last city so it can be shown on the next cold start
+    private static final String PREF_LAST_QUERY = "last_query";
+
+    // show temperatures in Celsius instead of Fahrenheit (shared with SavedLocationsActivity)
+    private static final String PREF_CELSIUS = "celsius";
+
+    // show the 3 hour forecast instead of the daily one
+    private static final String PREF_HOURLY = "hourly";
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -63,50 +125,367 @@ public class MainActivity extends AppCompatActivity {
         mTimeUpdatedTextView = (TextView) findViewById(R.id.timeUpdatedTextView);
         mTimeUpdatedTextView.setVisibility(View.INVISIBLE);
 
-        // create ArrayAdapter to bind mWeatherList to the mWeatherListView
-        mWeatherListView = (ListView) findViewById(R.id.weatherListView);
-        mWeatherArrayAdapter = new WeatherArrayAdapter(this, mWeatherList);
-        mWeatherListView.setAdapter(mWeatherArrayAdapter);
+        // draw the bundled weather icons in the background, so the first bind of the list has no I/O
+        IconProvider.getInstance(this).prewarm();
+
+        // create the adapter and bind it to mWeatherRecyclerView
+        mWeatherRecyclerView = (RecyclerView) findViewById(R.id.weatherRecyclerView);
+        mWeatherAdapter = new WeatherAdapter(this);
+        mWeatherAdapter.setTemperatureUnit(getTemperatureUnit(this));
+
+        // forecasts are saved to disk, so repeated lookups (and app restarts) don't need the network
+        mForecastCache = createForecastCache(this);
+        mPageStore = createPageStore(this);
+        mRequests = ForecastRequestFragment.get(this);
+
+        mHourlyAdapter = new HourlyWeatherAdapter(this, mPageStore);
+        mHourlyAdapter.setTemperatureUnit(getTemperatureUnit(this));
+        setUpRecyclerView();
+
+        // keep the saved and recent cities fresh in the background, so they show up to date right away
+        PrefetchService.schedule(this);
+
+        mLocationEditText = (AutoCompleteTextView) findViewById(R.id.locationEditText);
+        setUpSuggestions();
 
         // configure FAB to hide keyboard and initiate web service request
         FloatingActionButton fab = (FloatingActionButton) findViewById(R.id.fab);
         fab.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                // get text from mLocationEditText and create web service URL
-                mLocationEditText = (EditText) findViewById(R.id.locationEditText);
-                URL url = createURL(mLocationEditText.getText().toString());
-
-                // hide keyboard and initiate a GetWeatherTask to download
-                // weather data from OpenWeatherMap.org in a separate thread
-                if (url != null) {
+                // get text from mLocationEditText and load its forecast
+                String query = mLocationEditText.getText().toString();
+                if (loadForecast(query)) {
                     dismissKeyboard(mLocationEditText);
-                    GetWeatherTask getLocalWeatherTask = new GetWeatherTask();
-                    // note: AsyncTasks instances can only be execute() once.
-                    // we have to create new instances for every execute().
-                    getLocalWeatherTask.execute(url);
                 }
                 else {
                     Snackbar.make(findViewById(R.id.coordinatorLayout), R.string.invalid_url, Snackbar.LENGTH_LONG).show();
                 }
+            }
+        });
+
+        // on a cold start show the last city the user looked at straight from the cache
+        String lastQuery = getPreferences(MODE_PRIVATE).getString(PREF_LAST_QUERY, null);
+        // (after a rotation too: the list is new and empty, a download that's still running
+        // isn't started again, see ForecastRequestFragment)
+        if (lastQuery != null) {
+            mLocationEditText.setText(lastQuery);
+            loadForecast(lastQuery);
+        }
+
+        // results that arrived while the activity was being recreated are delivered now
+        mRequests.setCallbacks(this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // the fragment outlives this activity on rotation, don't let it hold on to us
+        mRequests.setCallbacks(null);
+    }
+
+    // type-ahead for the location field. the lookups are started by the TextWatcher (debounced
+    // by CitySearch), not by the AutoCompleteTextView's own filter: its threshold is never
+    // reached, the drop down is shown when our results arrive.
+    private void setUpSuggestions() {
+        mSuggestionsAdapter = new ArrayAdapter<>(this, android.R.layout.simple_dropdown_item_1line);
+        mLocationEditText.setAdapter(mSuggestionsAdapter);
+        mLocationEditText.setThreshold(Integer.MAX_VALUE);
+
+        mLocationEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable text) {
+                if (mCitySearch != null && mLocationEditText.hasFocus()) {
+                    mCitySearch.query(text.toString(), new CitySearch.Callback() {
+                        @Override
+                        public void onResults(String query, List<CityIndex.City> cities) {
+                            showSuggestions(cities);
+                        }
+                    });
+                }
+            }
+        });
+
+        // a suggestion was picked: its text ("London, GB") is in the field, show its forecast
+        mLocationEditText.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+            @Override
+            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+                if (mCitySearch != null) {
+                    mCitySearch.cancel(); // the lookup for the completed text isn't needed
+                }
+                loadForecast(mSuggestionsAdapter.getItem(position).toString());
+                dismissKeyboard(mLocationEditText);
+            }
+        });
+
+        if (sCityIndex != null) {
+            createCitySearch(sCityIndex);
+        } else {
+            new LoadCityIndexTask(this).executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        }
+    }
+
+    private void createCitySearch(CityIndex index) {
+        final Handler handler = new Handler(Looper.getMainLooper());
+        Executor mainThread = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                handler.post(command);
+            }
+        };
+        mCitySearch = new CitySearch(index, SEARCH_EXECUTOR, mainThread, SUGGESTION_DELAY_MILLIS, MAX_SUGGESTIONS);
+    }
+
+    private void showSuggestions(List<CityIndex.City> cities) {
+        mSuggestionsAdapter.setNotifyOnChange(false);
+        mSuggestionsAdapter.clear();
+        for (CityIndex.City city : cities) {
+            mSuggestionsAdapter.add(city);
+        }
+        mSuggestionsAdapter.notifyDataSetChanged();
+
+        if (cities.isEmpty()) {
+            mLocationEditText.dismissDropDown();
+        } else if (mLocationEditText.hasFocus()) {
+            mLocationEditText.showDropDown();
+        }
+    }
+
+    // the bundled city list (assets/cities.tsv), indexed. reads the whole list, call it
+    // from a background thread.
+    static CityIndex loadCityIndex(Context context) throws IOException {
+        InputStreamReader reader = new InputStreamReader(context.getAssets().open("cities.tsv"), "UTF-8");
+        try {
+            return CityIndex.read(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void setUpRecyclerView() {
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this) {
+            // while scrolling, lay out (and bind) the rows half a screen ahead of the visible
+            // ones, so they're ready before they scroll into view
+            @Override
+            protected int getExtraLayoutSpace(RecyclerView.State state) {
+                return getHeight() / 2;
+            }
+        };
+        mWeatherRecyclerView.setLayoutManager(layoutManager);
+        mWeatherRecyclerView.setHasFixedSize(true); // its size doesn't depend on the rows
+        mWeatherRecyclerView.setAdapter(isHourly() ? mHourlyAdapter : mWeatherAdapter);
+
+        // warm the icons of the next rows in the direction the user scrolls
+        mWeatherRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                int from;
+                if (dy > 0) {
+                    from = layoutManager.findLastVisibleItemPosition() + 1;
+                } else if (dy < 0) {
+                    from = layoutManager.findFirstVisibleItemPosition() - PREFETCH_ROWS;
+                } else {
+                    return;
+                }
 
-                updateLocation();
-                updatedTime();
+                if (isHourly()) {
+                    mHourlyAdapter.prefetch(from, PREFETCH_ROWS); // also reads their pages back
+                } else {
+                    mWeatherAdapter.prefetch(from, PREFETCH_ROWS);
+                }
             }
         });
     }
 
+    private boolean isHourly() {
+        return getPreferences(MODE_PRIVATE).getBoolean(PREF_HOURLY, false);
+    }
+
+    // the API urls with the settings from APISettings (kept out of version control)
+    static ForecastUrls createForecastUrls() {
+        return new ForecastUrls(APISettings.apiBase, APISettings.apiUnits, APISettings.apiKey);
+    }
+
+    // the forecast cache shared by MainActivity and SavedLocationsActivity
+    static ForecastCache createForecastCache(Context context) {
+        long ttlMillis = context.getResources().getInteger(R.integer.forecast_cache_ttl_minutes) * 60 * 1000L;
+        return new ForecastCache(new File(context.getCacheDir(), "forecasts"), ttlMillis);
+    }
+
+    static ForecastPageStore createPageStore(Context context) {
+        long ttlMillis = context.getResources().getInteger(R.integer.forecast_cache_ttl_minutes) * 60 * 1000L;
+        return new ForecastPageStore(new File(context.getCacheDir(), "hourly"), ttlMillis);
+    }
+
+    // the unit the user picked for temperatures
+    static TemperatureUnit getTemperatureUnit(Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context).getBoolean(PREF_CELSIUS, false)
+                ? TemperatureUnit.CELSIUS
+                : TemperatureUnit.FAHRENHEIT;
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_main, menu);
+        menu.findItem(R.id.action_celsius).setChecked(getTemperatureUnit(this) == TemperatureUnit.CELSIUS);
+        menu.findItem(R.id.action_hourly).setChecked(isHourly());
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        switch (item.getItemId()) {
+            case R.id.action_save_location:
+                // save the city on screen (or the one typed in) to the saved locations
+                String query = mCurrentQuery != null ? mCurrentQuery : mLocationEditText.getText().toString();
+                if (query.trim().isEmpty()) {
+                    Snackbar.make(findViewById(R.id.coordinatorLayout), R.string.invalid_url, Snackbar.LENGTH_LONG).show();
+                } else {
+                    new SavedLocations(this).add(query);
+                    Snackbar.make(findViewById(R.id.coordinatorLayout),
+                            getString(R.string.location_saved, query), Snackbar.LENGTH_LONG).show();
+                }
+                return true;
+            case R.id.action_celsius:
+                // Weather keeps the raw values, so switching units just formats the rows again
+                boolean celsius = !item.isChecked();
+                item.setChecked(celsius);
+                PreferenceManager.getDefaultSharedPreferences(this).edit().putBoolean(PREF_CELSIUS, celsius).apply();
+                TemperatureUnit unit = celsius ? TemperatureUnit.CELSIUS : TemperatureUnit.FAHRENHEIT;
+                mWeatherAdapter.setTemperatureUnit(unit);
+                mHourlyAdapter.setTemperatureUnit(unit);
+                return true;
+            case R.id.action_hourly:
+                // switch between the daily and the 3 hour forecast of the city on screen
+                boolean hourly = !item.isChecked();
+                item.setChecked(hourly);
+                getPreferences(MODE_PRIVATE).edit().putBoolean(PREF_HOURLY, hourly).apply();
+                mWeatherRecyclerView.setAdapter(hourly ? mHourlyAdapter : mWeatherAdapter);
+                if (mCurrentQuery != null) {
+                    loadForecast(mCurrentQuery);
+                }
+                return true;
+            case R.id.action_saved_locations:
+                startActivityForResult(new Intent(this, SavedLocationsActivity.class), REQUEST_SAVED_LOCATION);
+                return true;
+            default:
+                return super.onOptionsItemSelected(item);
+        }
+    }
+
+    // the user picked a city in SavedLocationsActivity, show its forecast
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == REQUEST_SAVED_LOCATION && resultCode == RESULT_OK && data != null) {
+            String query = data.getStringExtra(SavedLocationsActivity.EXTRA_QUERY);
+            mLocationEditText.setText(query);
+            loadForecast(query);
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+
+        // check how well the icon cache is doing (Log calls are stripped from release builds)
+        IconLoader.getInstance(this).logStats();
+
+        StringWriter metrics = new StringWriter();
+        Metrics.dump(new PrintWriter(metrics));
+        Log.d(TAG, "timings:\n" + metrics);
+    }
+
+    // the timings of the forecast requests and the list, on demand:
+    //     adb shell dumpsys activity com.example.lawrence.weather/.MainActivity
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.println(prefix + "Metrics:");
+        Metrics.dump(writer);
+    }
+
+    // show the cached forecast for the query (if any) and start a download
+    // if there is no cached copy or the cached copy is stale (see onCachedForecast()).
+    // returns false if we couldn't create a URL for the query.
+    private boolean loadForecast(String query) {
+        URL url = createURL(query);
+        if (url == null) {
+            return false;
+        }
+
+        mCurrentQuery = query;
+        getPreferences(MODE_PRIVATE).edit().putString(PREF_LAST_QUERY, query).apply();
+        new SavedLocations(this).addRecent(query); // PrefetchService refreshes it from now on
+
+        if (isHourly()) {
+            loadHourlyForecast(query, url);
+            return true;
+        }
+
+        // the cache file is read on a worker thread, like the downloads
+        mRequests.readCached(this, query);
+        return true;
+    }
+
+    // show the saved 3 hour forecast for the query (if any) and download it again if there is none
+    // or it's stale. the rows are read from disk and downloaded a page at a time.
+    private void loadHourlyForecast(String query, URL url) {
+        // the index is a few bytes, reading it here is quick. the pages are read in the background.
+        ForecastPageStore.Index index = mPageStore.getIndex(query);
+        String key = ForecastCache.normalize(query);
+        if (index != null) {
+            if (!key.equals(mHourlyAdapter.getQuery())) {
+                mHourlyAdapter.show(key, index.getCount());
+                mWeatherRecyclerView.scrollToPosition(0);
+            }
+            updateLocation(index.getCity());
+            updatedTime(index.getFetchedAt());
+        } else if (!key.equals(mHourlyAdapter.getQuery())) {
+            // nothing saved yet, the rows appear as the pages are downloaded. a download that
+            // was running before a rotation has already saved some pages, show those too.
+            mHourlyAdapter.show(key, Math.max(mRequests.getHourlySaved(query), 0));
+        }
+
+        if (index == null || mPageStore.isStale(index, System.currentTimeMillis())) {
+            mRequests.fetchHourly(this, query, url);
+        }
+    }
+
+    // show a (cached or downloaded) forecast.
+    // a refresh of the city on screen only updates the rows that changed.
+    private void showForecast(ForecastCache.Entry entry) {
+        boolean sameCity = entry.getQuery().equals(mShownQuery);
+        mShownQuery = entry.getQuery();
+
+        mWeatherAdapter.submit(entry.getForecast(), !sameCity);
+
+        if (!sameCity) {
+            // start at the top of the new city's forecast
+            mWeatherRecyclerView.scrollToPosition(0);
+        }
+
+        updateLocation(entry.getCity());
+        updatedTime(entry.getFetchedAt());
+    }
+
     // helper method to set location text
-    private void updateLocation(){
-        mLocationTextView.setText(this.getString(R.string.location, "--"));
+    private void updateLocation(String city){
+        mLocationTextView.setText(this.getString(R.string.location, city != null ? city : "--"));
         mLocationTextView.setVisibility(View.VISIBLE);
     }
 
     // get and set text to time that data was updated.
-    private void updatedTime() {
+    private void updatedTime(long fetchedAt) {
         SimpleDateFormat formatter = new SimpleDateFormat("h:mm:ss zzz");
         formatter.setTimeZone(TimeZone.getDefault());
-        Date date = new Date(System.currentTimeMillis());
+        Date date = new Date(fetchedAt);
         String timeString = formatter.format(date);
 
         mTimeUpdatedTextView.setText(this.getString(R.string.time_updated, timeString));
@@ -121,148 +500,153 @@ public class MainActivity extends AppCompatActivity {
 
 
     // create url to API (endpoint to send GET request).
+    // a city from the bundled list is asked for by its id, so the API doesn't have to guess
+    // which one is meant (and a typo can't make it pick another one).
     private URL createURL(String city) {
         // hard code for testing so you don't have to type input everytime
         //city = "new%20york"; // %20 is url encoded space char
 
-        String baseUrl = APISettings.apiBase;
-        String units = APISettings.apiUnits;
-        String apiKey = APISettings.apiKey;
-
-        try {
-            // create URL for specified city and imperial units (Fahrenheit)
-            String urlString = baseUrl + URLEncoder.encode(city, "UTF-8") + units + apiKey;
-            //String urlString = baseUrl + city + units + apiKey;
-
-            Log.d(TAG, "city is: " + city);
-            // test if Snackbar works for Android 4.4 (it does).
-            //Snackbar.make(findViewById(R.id.coordinatorLayout), "city is: " + city, Snackbar.LENGTH_LONG).show();
+        Log.d(TAG, "city is: " + city);
+        CityIndex.City known = mCitySearch != null ? mCitySearch.getIndex().find(city) : null;
+        if (known != null) {
+            return isHourly() ? mForecastUrls.hourlyForCityId(known.getId()) : mForecastUrls.forCityId(known.getId());
+        }
+        return isHourly() ? mForecastUrls.hourlyForCity(city) : mForecastUrls.forCity(city);
+    }
 
-            // urlString should resemble "http://api.openweathermap.org/data/2.5/forecast/daily?q=newyork&units=imperial&cnt=16&APPID=XXXXX"
-            // where XXXXX is your specific api key.
-            return new URL(urlString);
+    // the saved daily forecast was read (ForecastRequestFragment.Callbacks): show it, and download
+    // weather data from OpenWeatherMap.org in a separate thread if there was none or it's stale
+    // (unless that download is still running, e.g. it was started before a rotation)
+    @Override
+    public void onCachedForecast(String query, FetchResult<ForecastCache.Entry> result) {
+        if (!isCurrentQuery(query) || isHourly()) {
+            return;
         }
-        catch (Exception e) {
-            e.printStackTrace();
+        ForecastCache.Entry cached = result.getValue();
+        if (cached != null) {
+            showForecast(cached);
         }
 
-        return null; // URL was malformed
+        if (cached == null || mForecastCache.isStale(cached, System.currentTimeMillis())) {
+            URL url = createURL(query);
+            if (url != null) {
+                mRequests.fetchForecast(this, query, url);
+            }
+        }
     }
 
-    // makes the REST web service call to get weather data and save data to a local HTML file
-    private class GetWeatherTask extends AsyncTask<URL, Void, JSONObject> {
-        // takes a generics of url, void, and JSONObject
-        // url is used by doInBackground()
-        // void is used by onProgressUpdate(), which we aren't using
-        // jsonobject is used by onPostExecute()
-
-        @Override
-        protected JSONObject doInBackground(URL... params) {
-            // we use variable num of params, but we only used the 1st param (params[0])
-            HttpURLConnection connection = null;
-
-            // try doing a HTTP connection
-            try {
-                connection = (HttpURLConnection) params[0].openConnection();
-                int response = connection.getResponseCode();
-
-                // if HTTP response code is 200 then OK
-                if (response == HttpURLConnection.HTTP_OK) {
-                    StringBuilder builder = new StringBuilder();
+    // a daily forecast download finished (ForecastRequestFragment.Callbacks)
+    @Override
+    public void onForecastResult(String query, FetchResult<ForecastCache.Entry> result) {
+        if (!isCurrentQuery(query)) {
+            return;
+        }
+        if (result.getStatus() != FetchResult.Status.FAILED && !isHourly()) {
+            showForecast(result.getValue());
+        }
+        showFailure(result);
+    }
 
-                    BufferedReader reader;
-                    try{
-                        reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+    @Override
+    public void onHourlyPage(String query, String city, int page, List<Weather> weathers) {
+        if (!isHourly() || !isCurrentQuery(query)) {
+            return;
+        }
+        if (page == 0) {
+            updateLocation(city);
+        }
+        mHourlyAdapter.onPage(query, page, weathers);
+    }
 
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            builder.append(line);
-                        }
-                    } catch (IOException e) {
-                        // problem reading JSON data
-                        Snackbar.make(
-                                findViewById(R.id.coordinatorLayout),
-                                R.string.read_error,
-                                Snackbar.LENGTH_LONG
-                        ).show();
+    @Override
+    public void onHourlyResult(String query, FetchResult<ForecastPageStore.Index> result) {
+        if (!isCurrentQuery(query)) {
+            return;
+        }
+        if (result.getStatus() == FetchResult.Status.FRESH && isHourly()) {
+            ForecastPageStore.Index index = result.getValue();
+            mHourlyAdapter.onFinished(query, index.getCount());
+            updatedTime(index.getFetchedAt());
+        } else if (result.getStatus() == FetchResult.Status.CACHED && isHourly()) {
+            // the download failed, maybe after some of its pages were shown: show the saved
+            // forecast again, its pages are still on disk
+            ForecastPageStore.Index index = result.getValue();
+            mHourlyAdapter.show(query, index.getCount());
+            updatedTime(index.getFetchedAt());
+        }
+        showFailure(result);
+    }
 
-                        e.printStackTrace();
-                    }
+    // false for a download of a city the user has moved away from since: it's saved in the cache,
+    // but mustn't replace the forecast on screen (or show its error)
+    private boolean isCurrentQuery(String query) {
+        return mCurrentQuery != null
+                && ForecastCache.normalize(query).equals(ForecastCache.normalize(mCurrentQuery));
+    }
 
-                    Log.d(TAG, "JSON data: " + builder.toString());
-                    return new JSONObject(builder.toString());
+    // tell the user why a download failed. the list keeps showing the saved forecast (if any).
+    private void showFailure(FetchResult<?> result) {
+        int messageId;
+        switch (result.getFailure()) {
+            case NONE:
+                return;
+            case TIMEOUT:
+                messageId = R.string.timeout_error;
+                break;
+            case SERVER_ERROR:
+                messageId = R.string.server_error;
+                break;
+            case NOT_FOUND:
+                messageId = R.string.not_found_error;
+                break;
+            case BAD_RESPONSE:
+                messageId = R.string.read_error;
+                break;
+            case UNAVAILABLE:
+                messageId = R.string.unavailable_error;
+                break;
+            default:
+                messageId = R.string.connect_error;
+                break;
+        }
+        String message = getString(messageId);
+        if (result.getStatus() == FetchResult.Status.CACHED) {
+            message = getString(R.string.showing_saved_forecast, message);
+        }
+        Snackbar.make(findViewById(R.id.coordinatorLayout), message, Snackbar.LENGTH_LONG).show();
+    }
 
-                } else {
-                    // problem with HTTP transaction
-                    Snackbar.make(
-                            findViewById(R.id.coordinatorLayout),
-                            R.string.connect_error,
-                            Snackbar.LENGTH_LONG
-                    ).show();
-                }
-            } catch (Exception e) {
-                // some sort of connection error (e.g. no wifi or data connection, firewall blocked, etc).
-                Snackbar.make(
-                        findViewById(R.id.coordinatorLayout),
-                        R.string.connect_error,
-                        Snackbar.LENGTH_LONG
-                ).show();
-                e.printStackTrace();
-            }
-            finally {
-                connection.disconnect(); // close the HttpURLConnection
-            }
+    // reads and indexes the bundled city list once, for the suggestions.
+    // static with a weak reference: a rotation while it runs mustn't keep the old activity alive.
+    private static class LoadCityIndexTask extends AsyncTask<Void, Void, CityIndex> {
+        private final Context context;
+        private final WeakReference<MainActivity> activity;
 
-            return null;
+        LoadCityIndexTask(MainActivity activity) {
+            this.context = activity.getApplicationContext();
+            this.activity = new WeakReference<>(activity);
         }
 
-        // this will be called by the main UI thread when needed.
-        // process JSON response and update ListView
         @Override
-        protected void onPostExecute(JSONObject weather) {
-            // repopulate mWeatherList with updated data
-            convertJSONtoArrayList(weather);
-
-            // notify adapter that we updated weather object and rebind to ListView
-            mWeatherArrayAdapter.notifyDataSetChanged();
-
-            // scroll back to the top of the list
-            mWeatherListView.smoothScrollToPosition(0);
+        protected CityIndex doInBackground(Void... params) {
+            try {
+                return loadCityIndex(context);
+            } catch (IOException e) {
+                e.printStackTrace(); // no suggestions, searching by name still works
+                return null;
+            }
         }
-    }
-
-    // method to transform/"mung" and bind JSON data to Weather objects
-    private void convertJSONtoArrayList(JSONObject forecast) {
-        mWeatherList.clear(); // clear old weather data
 
-        try {
-            // get forecast's "list" JSONArray which contains 16 days of weather.
-            JSONArray list = forecast.getJSONArray("list");
-
-            // convert each element of list to a Weather object
-            for (int i = 0; i < list.length(); ++i) {
-                JSONObject data = list.getJSONObject(i);
-
-                // get the data's temperatures ("temp") JSONObject
-                JSONObject temperatures = data.getJSONObject("temp");
-
-                // get data's "weather" JSONObject for the description and icon
-                JSONObject weather = data.getJSONArray("weather").getJSONObject(0);
-
-                // add new Weather object to mWeatherList
-                mWeatherList.add(
-                        new Weather(
-                                data.getLong("dt"), // date/time timestamp
-                                temperatures.getDouble("min"), // minimum temperature
-                                temperatures.getDouble("max"), // maximum temperature
-                                data.getDouble("humidity"), // percent humidity
-                                weather.getString("description"), // weather conditions
-                                weather.getString("icon") // icon name
-                        )
-                );
+        @Override
+        protected void onPostExecute(CityIndex index) {
+            if (index == null) {
+                return;
+            }
+            sCityIndex = index;
+            MainActivity mainActivity = activity.get();
+            if (mainActivity != null && !mainActivity.isFinishing()) {
+                mainActivity.createCitySearch(index);
             }
-        } catch (JSONException e) {
-            e.printStackTrace();
         }
     }
 }
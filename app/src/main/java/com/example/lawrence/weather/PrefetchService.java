@@ -0,0 +1,114 @@
+package com.example.lawrence.weather;
+
+import android.app.AlarmManager;
+import android.app.IntentService;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.os.SystemClock;
+import android.support.v4.net.ConnectivityManagerCompat;
+import android.util.Log;
+
+import java.util.List;
+
+// Refreshes the saved and recently viewed cities in the background, so the app can show a fresh
+// forecast from ForecastCache as soon as it's opened instead of waiting for the network.
+//
+// An inexact, non-waking alarm starts the service about once an hour: the system delivers it
+// together with other alarms while the device is awake anyway, so we don't wake up the device
+// (and its radio) just for us. PrefetchPolicy decides if the run may use the network (unmetered
+// network, battery not low) and backs off after runs that failed; Prefetcher downloads all the
+// cities that need it in one burst.
+public class PrefetchService extends IntentService {
+    private static final String TAG = PrefetchService.class.getSimpleName();
+
+    // the policy's state between runs
+    private static final String PREFS_NAME = "prefetch";
+    private static final String KEY_FAILURES = "consecutive_failures";
+    private static final String KEY_NEXT_RUN_AT = "next_run_at";
+
+    // downloads at the same time in one run
+    private static final int MAX_PARALLEL_REQUESTS = 4;
+
+    public PrefetchService() {
+        super(TAG);
+    }
+
+    // start the periodic prefetch. safe to call every time the app starts,
+    // an alarm that is already set is just replaced.
+    public static void schedule(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        PendingIntent operation = PendingIntent.getService(
+                context, 0, new Intent(context, PrefetchService.class), PendingIntent.FLAG_UPDATE_CURRENT);
+
+        alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME,
+                SystemClock.elapsedRealtime() + PrefetchPolicy.INTERVAL, PrefetchPolicy.INTERVAL, operation);
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        SharedPreferences preferences = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        PrefetchPolicy policy = new PrefetchPolicy(Clock.SYSTEM,
+                preferences.getInt(KEY_FAILURES, 0), preferences.getLong(KEY_NEXT_RUN_AT, 0));
+
+        if (!policy.isDue()) {
+            return; // backing off, or we just ran
+        }
+
+        ConnectivityManager connectivity = (ConnectivityManager) getSystemService(CONNECTIVITY_SERVICE);
+        NetworkInfo network = connectivity.getActiveNetworkInfo();
+
+        // the battery status is a sticky broadcast, registering a null receiver just reads it
+        Intent battery = registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        int level = battery != null ? battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1) : -1;
+        int scale = battery != null ? battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1) : -1;
+        int plugged = battery != null ? battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) : 0;
+        boolean batteryLow = level >= 0 && scale > 0 && level * 100 / scale <= 15; // like ACTION_BATTERY_LOW
+
+        if (!policy.canRun(network != null && network.isConnected(),
+                ConnectivityManagerCompat.isActiveNetworkMetered(connectivity), batteryLow, plugged != 0)) {
+            Log.d(TAG, "skipped, conditions not met");
+            return;
+        }
+
+        List<String> queries = new SavedLocations(this).getSavedAndRecent();
+        ForecastCache cache = MainActivity.createForecastCache(this);
+        Prefetcher prefetcher = new Prefetcher(new ForecastFetcher(HttpClient.getDefault(), cache), cache,
+                MainActivity.createForecastUrls(), ForecastRequestFragment.getCaller(), NetworkExecutors.FORECAST,
+                MAX_PARALLEL_REQUESTS);
+
+        try {
+            Prefetcher.Result result = prefetcher.run(queries, policy);
+            Log.d(TAG, "prefetch " + result);
+            if (result.isFailure()) {
+                policy.onFailure();
+            } else {
+                policy.onSuccess();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        preferences.edit()
+                .putInt(KEY_FAILURES, policy.getConsecutiveFailures())
+                .putLong(KEY_NEXT_RUN_AT, policy.getNextRunAt())
+                .apply();
+    }
+
+    // alarms don't survive a reboot, set it again
+    public static class BootReceiver extends BroadcastReceiver {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
+                schedule(context);
+            }
+        }
+    }
+}
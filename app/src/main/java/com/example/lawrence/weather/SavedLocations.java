@@ -0,0 +1,113 @@
+package com.example.lawrence.weather;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// The list of cities the user keeps track of, stored in SharedPreferences.
+// Kept as one newline separated string (instead of a StringSet) so the order the user
+// added them in is kept.
+// Also remembers the last few cities the user looked at, which PrefetchService keeps fresh
+// together with the saved ones.
+public class SavedLocations {
+    private static final String PREFS_NAME = "saved_locations";
+    private static final String KEY_QUERIES = "queries";
+    private static final String KEY_RECENT = "recent";
+
+    private static final int MAX_RECENT = 5;
+
+    private final SharedPreferences preferences;
+
+    public SavedLocations(Context context) {
+        preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    // the saved city queries, in the order they were added
+    public List<String> getAll() {
+        return read(KEY_QUERIES);
+    }
+
+    // the cities the user looked at last, most recent first
+    public List<String> getRecent() {
+        return read(KEY_RECENT);
+    }
+
+    // the saved and the recent cities, each city once
+    public List<String> getSavedAndRecent() {
+        List<String> queries = getAll();
+        for (String recent : getRecent()) {
+            if (indexOf(queries, recent) < 0) {
+                queries.add(recent);
+            }
+        }
+        return queries;
+    }
+
+    // returns false if the city was already saved
+    public boolean add(String query) {
+        query = query.trim();
+        List<String> queries = getAll();
+        if (indexOf(queries, query) >= 0) {
+            return false;
+        }
+        queries.add(query);
+        save(KEY_QUERIES, queries);
+        return true;
+    }
+
+    // the user looked at this city, move it to the front of the recent cities
+    public void addRecent(String query) {
+        query = query.trim();
+        List<String> recent = getRecent();
+        int index = indexOf(recent, query);
+        if (index == 0) {
+            return; // already the most recent, don't write the preferences again
+        }
+        if (index > 0) {
+            recent.remove(index);
+        }
+        recent.add(0, query);
+        while (recent.size() > MAX_RECENT) {
+            recent.remove(recent.size() - 1);
+        }
+        save(KEY_RECENT, recent);
+    }
+
+    // removes the saved city that matches query, compared like add() does
+    public void remove(String query) {
+        List<String> queries = getAll();
+        int index = indexOf(queries, query);
+        if (index < 0) {
+            return;
+        }
+        queries.remove(index);
+        save(KEY_QUERIES, queries);
+    }
+
+    // position of the query in the list, ignoring case and spacing (-1 if it isn't there)
+    private static int indexOf(List<String> queries, String query) {
+        String key = ForecastCache.normalize(query);
+        for (int i = 0; i < queries.size(); ++i) {
+            if (ForecastCache.normalize(queries.get(i)).equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private List<String> read(String key) {
+        String saved = preferences.getString(key, "");
+        if (saved.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Arrays.asList(saved.split("\n")));
+    }
+
+    private void save(String key, List<String> queries) {
+        preferences.edit().putString(key, TextUtils.join("\n", queries)).apply();
+    }
+}
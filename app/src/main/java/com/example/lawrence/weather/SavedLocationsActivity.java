@@ -0,0 +1,170 @@
+package com.example.lawrence.weather;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.design.widget.Snackbar;
+import android.support.v7.app.AppCompatActivity;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ListView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+// Shows all the saved cities in one list, each with today's forecast.
+// Cached forecasts are shown right away, then every city is refreshed in parallel
+// (BatchForecastFetcher) and its row is updated as soon as its forecast arrives.
+// Tapping a city opens its full forecast in MainActivity, long pressing removes it.
+public class SavedLocationsActivity extends AppCompatActivity {
+
+    // query of the city the user picked, returned to MainActivity
+    public static final String EXTRA_QUERY = "query";
+
+    // how many cities are downloaded at the same time
+    private static final int MAX_PARALLEL_REQUESTS = 4;
+
+    private final List<SavedLocationsAdapter.Item> mItems = new ArrayList<>();
+    private SavedLocationsAdapter mAdapter;
+
+    private SavedLocations mSavedLocations;
+    private ForecastCache mForecastCache;
+    private BatchForecastFetcher mBatchFetcher;
+    private BatchForecastFetcher.Batch mRunningBatch;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_saved_locations);
+
+        mSavedLocations = new SavedLocations(this);
+        mForecastCache = MainActivity.createForecastCache(this);
+
+        // results are delivered on the main UI thread
+        final Handler handler = new Handler(Looper.getMainLooper());
+        Executor mainThread = new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                handler.post(runnable);
+            }
+        };
+        mBatchFetcher = new BatchForecastFetcher(
+                new ForecastFetcher(HttpClient.getDefault(), mForecastCache),
+                MainActivity.createForecastUrls(),
+                ForecastRequestFragment.getCaller(),
+                NetworkExecutors.FORECAST,
+                mainThread,
+                MAX_PARALLEL_REQUESTS);
+
+        ListView listView = (ListView) findViewById(R.id.savedLocationsListView);
+        listView.setEmptyView(findViewById(R.id.emptyTextView));
+        mAdapter = new SavedLocationsAdapter(this, mItems);
+        mAdapter.setTemperatureUnit(MainActivity.getTemperatureUnit(this));
+        listView.setAdapter(mAdapter);
+
+        listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+            @Override
+            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+                // show this city's forecast in MainActivity
+                Intent result = new Intent();
+                result.putExtra(EXTRA_QUERY, mItems.get(position).query);
+                setResult(RESULT_OK, result);
+                finish();
+            }
+        });
+        listView.setOnItemLongClickListener(new AdapterView.OnItemLongClickListener() {
+            @Override
+            public boolean onItemLongClick(AdapterView<?> parent, View view, int position, long id) {
+                String query = mItems.remove(position).query;
+                mSavedLocations.remove(query);
+                mAdapter.notifyDataSetChanged();
+                Snackbar.make(findViewById(R.id.savedLocationsLayout),
+                        getString(R.string.location_removed, query), Snackbar.LENGTH_SHORT).show();
+                return true;
+            }
+        });
+
+        // show what we have in the cache right away (the files are tiny), then refresh
+        for (String query : mSavedLocations.getAll()) {
+            SavedLocationsAdapter.Item item = new SavedLocationsAdapter.Item(query);
+            item.forecast = mForecastCache.get(query);
+            mItems.add(item);
+        }
+        mAdapter.notifyDataSetChanged();
+        refresh();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_saved_locations, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_refresh) {
+            refresh();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (mRunningBatch != null) {
+            mRunningBatch.cancel(); // don't start more downloads for a screen that's gone
+        }
+    }
+
+    // download all the saved cities in parallel and update each row when it's done
+    private void refresh() {
+        if (mRunningBatch != null) {
+            mRunningBatch.cancel();
+        }
+
+        List<String> queries = new ArrayList<>();
+        for (SavedLocationsAdapter.Item item : mItems) {
+            queries.add(item.query);
+        }
+
+        mRunningBatch = mBatchFetcher.fetchAll(queries, new BatchForecastFetcher.Listener() {
+            @Override
+            public void onCityResult(String query, FetchResult<ForecastCache.Entry> result) {
+                if (result.getError() != null) {
+                    result.getError().printStackTrace();
+                }
+                SavedLocationsAdapter.Item item = findItem(query);
+                if (item == null) {
+                    return;
+                }
+                if (result.getValue() != null) {
+                    item.forecast = result.getValue(); // fresh, or the cached one if the download failed
+                    item.failed = false;
+                    mAdapter.notifyDataSetChanged();
+                } else if (item.forecast == null) {
+                    item.failed = true;
+                    mAdapter.notifyDataSetChanged();
+                }
+            }
+
+            @Override
+            public void onFinished() {
+                mRunningBatch = null;
+            }
+        });
+    }
+
+    private SavedLocationsAdapter.Item findItem(String query) {
+        for (SavedLocationsAdapter.Item item : mItems) {
+            if (item.query.equals(query)) {
+                return item;
+            }
+        }
+        return null; // removed while it was loading
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.lawrence.weather;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ArrayAdapter;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import java.util.List;
+
+// Binds the saved cities to SavedLocationsActivity's ListView.
+// Each row shows a city with today's forecast (the first day of its cached forecast),
+// using the same list_item layout and ViewHolder pattern as the forecast list.
+public class SavedLocationsAdapter extends ArrayAdapter<SavedLocationsAdapter.Item> {
+
+    // one row: the saved query and its forecast (null until it's loaded)
+    public static class Item {
+        final String query;
+        ForecastCache.Entry forecast;
+        boolean failed;
+
+        public Item(String query) {
+            this.query = query;
+        }
+    }
+
+    private final IconLoader iconLoader;
+    private TemperatureUnit temperatureUnit = TemperatureUnit.FAHRENHEIT;
+
+    public SavedLocationsAdapter(Context context, List<Item> items) {
+        super(context, -1, items);
+        iconLoader = IconLoader.getInstance(context);
+    }
+
+    public void setTemperatureUnit(TemperatureUnit unit) {
+        temperatureUnit = unit;
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        Item item = getItem(position);
+
+        ViewHolder viewHolder;
+        if (convertView == null) {
+            viewHolder = new ViewHolder();
+            convertView = LayoutInflater.from(getContext()).inflate(R.layout.list_item, parent, false);
+            viewHolder.conditionImageView = (ImageView) convertView.findViewById(R.id.conditionImageView);
+            viewHolder.dayTextView = (TextView) convertView.findViewById(R.id.dayTextView);
+            viewHolder.lowTextView = (TextView) convertView.findViewById(R.id.lowTextView);
+            viewHolder.hiTextView = (TextView) convertView.findViewById(R.id.hiTextView);
+            viewHolder.humidityTextView = (TextView) convertView.findViewById(R.id.humidityTextView);
+            convertView.setTag(viewHolder);
+        } else {
+            viewHolder = (ViewHolder) convertView.getTag();
+        }
+
+        // drop the icon request of the city this row showed before
+        if (viewHolder.iconRequest != null) {
+            viewHolder.iconRequest.cancel();
+            viewHolder.iconRequest = null;
+        }
+
+        Context context = getContext();
+        if (item.forecast == null || item.forecast.getForecast().isEmpty()) {
+            // not loaded yet (or the download failed)
+            iconLoader.clear(viewHolder.conditionImageView);
+            viewHolder.dayTextView.setText(context.getString(
+                    item.failed ? R.string.saved_location_failed : R.string.saved_location_loading, item.query));
+            viewHolder.lowTextView.setText(null);
+            viewHolder.hiTextView.setText(null);
+            viewHolder.humidityTextView.setText(null);
+            return convertView;
+        }
+
+        // today's weather for the city
+        Weather today = item.forecast.getForecast().get(0);
+        String city = item.forecast.getCity() != null ? item.forecast.getCity() : item.query;
+
+        viewHolder.iconRequest = iconLoader.load(today, viewHolder.conditionImageView);
+        viewHolder.dayTextView.setText(
+                context.getString(R.string.day_description, city, today.getDescription())
+        );
+        viewHolder.lowTextView.setText(
+                context.getString(R.string.low_temp, today.getMinTemp(temperatureUnit))
+        );
+        viewHolder.hiTextView.setText(
+                context.getString(R.string.high_temp, today.getMaxTemp(temperatureUnit))
+        );
+        viewHolder.humidityTextView.setText(
+                context.getString(R.string.humidity, today.getHumidity())
+        );
+
+        return convertView;
+    }
+
+    private static class ViewHolder {
+        ImageView conditionImageView;
+        TextView dayTextView;
+        TextView lowTextView;
+        TextView hiTextView;
+        TextView humidityTextView;
+        IconLoader.Request iconRequest;
+    }
+}
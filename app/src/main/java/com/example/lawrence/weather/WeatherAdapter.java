@@ -0,0 +1,222 @@
+package com.example.lawrence.weather;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+// This is also in the controller layer.
+// We use a RecyclerView.Adapter to bind data/model from Weather.java to the RecyclerView in
+// MainActivity.java. RecyclerView always uses the ViewHolder pattern: a ViewHolder keeps the
+// references to the views of a row, so inflate() and findViewById() (both expensive operations)
+// only run when a row is created, and a row that scrolled off screen is reused by just binding
+// other data to its ViewHolder.
+//
+// Each day has a stable ID (its timestamp). When a refreshed forecast is submitted, the
+// difference with the list on screen (ForecastDiff) is computed on a background thread, and
+// only the rows that were removed, inserted or changed are updated, instead of
+// notifyDataSetChanged() rebinding every row. That keeps a refresh cheap for long
+// (hourly) forecasts too.
+public class WeatherAdapter extends RecyclerView.Adapter<WeatherAdapter.ViewHolder> {
+
+    // diffs run one at a time off the main UI thread. a newer forecast replaces a diff that's
+    // still waiting, its result would be thrown away anyway.
+    private static final Executor DIFF_EXECUTOR = new LatestOnlyExecutor(NetworkExecutors.newPool("diff", 1, 1));
+
+    private final Context context;
+
+    // loads weather icons (bundled with the app, from IconCache, or downloaded), so that we don't
+    // waste time/bandwidth downloading them again. rows waiting for the same icon share one download.
+    private final IconLoader iconLoader;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // the forecast on screen. replaced (never changed) on the main UI thread, so a background
+    // diff can safely read the list it was started with.
+    private List<Weather> forecast = Collections.emptyList();
+
+    // bumped for every submit(), so the result of an older diff is ignored
+    private int generation;
+
+    // unit the temperatures are shown in (the Weather objects are always in Fahrenheit)
+    private TemperatureUnit temperatureUnit = TemperatureUnit.FAHRENHEIT;
+
+    public WeatherAdapter(Context context) {
+        this.context = context;
+        iconLoader = IconLoader.getInstance(context);
+
+        // the timestamp identifies a day, so RecyclerView can keep track of rows across updates
+        setHasStableIds(true);
+    }
+
+    // show a new forecast.
+    // replace = true for another city: every row is new, no need to diff.
+    // replace = false for a refresh of the same city: only the rows that changed are updated.
+    public void submit(final List<Weather> newForecast, boolean replace) {
+        final int submitted = ++generation;
+        if (replace) {
+            long start = System.nanoTime(); // see Metrics.ADAPTER_NOTIFY
+            forecast = new ArrayList<>(newForecast);
+            notifyDataSetChanged();
+            Metrics.ADAPTER_NOTIFY.recordSince(start);
+            return;
+        }
+
+        final List<Weather> oldForecast = forecast;
+        final List<Weather> update = new ArrayList<>(newForecast);
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final ForecastDiff diff = ForecastDiff.compute(oldForecast, update);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (submitted == generation) {
+                            apply(update, diff);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    // switch to the new list and tell RecyclerView which rows changed (main UI thread)
+    private void apply(List<Weather> update, ForecastDiff diff) {
+        long start = System.nanoTime(); // see Metrics.ADAPTER_NOTIFY
+        forecast = update;
+
+        // removed positions are highest first and refer to the old list. after removing them,
+        // the inserted positions (lowest first) and the changed positions refer to the new list.
+        for (int position : diff.getRemoved()) {
+            notifyItemRemoved(position);
+        }
+        for (int position : diff.getInserted()) {
+            notifyItemInserted(position);
+        }
+        for (int position : diff.getChanged()) {
+            notifyItemChanged(position);
+        }
+        Metrics.ADAPTER_NOTIFY.recordSince(start);
+    }
+
+    public Weather getItem(int position) {
+        return forecast.get(position);
+    }
+
+    // show the temperatures in another unit. the rows are formatted again, nothing is re-downloaded.
+    public void setTemperatureUnit(TemperatureUnit unit) {
+        temperatureUnit = unit;
+        notifyItemRangeChanged(0, forecast.size());
+    }
+
+    @Override
+    public int getItemCount() {
+        return forecast.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return forecast.get(position).getTimeStamp();
+    }
+
+    // a new row: inflate the layout and find its views once
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(context).inflate(R.layout.list_item, parent, false);
+        return new ViewHolder(view);
+    }
+
+    // show the weather at position in a (new or reused) row
+    @Override
+    public void onBindViewHolder(ViewHolder viewHolder, int position) {
+        long start = System.nanoTime(); // see Metrics.BIND
+        Weather weather = forecast.get(position);
+        viewHolder.bind(weather,
+                context.getString(R.string.day_description, weather.getDayOfWeek(), weather.getDescription()),
+                temperatureUnit, iconLoader);
+        Metrics.BIND.recordSince(start);
+    }
+
+    @Override
+    public void onViewRecycled(ViewHolder viewHolder) {
+        viewHolder.cancelIcon();
+    }
+
+    // start loading the icons of the rows that are about to scroll into view, so they're in
+    // memory by the time the rows are bound
+    public void prefetch(int from, int count) {
+        int end = Math.min(from + count, forecast.size());
+        for (int position = Math.max(from, 0); position < end; ++position) {
+            iconLoader.prefetch(forecast.get(position));
+        }
+    }
+
+    // holds the views of a list_item
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        final ImageView conditionImageView;
+        final TextView dayTextView;
+        final TextView lowTextView;
+        final TextView hiTextView;
+        final TextView humidityTextView;
+
+        // icon still loading for this row (null if it was set from cache)
+        IconLoader.Request iconRequest;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            conditionImageView = (ImageView) itemView.findViewById(R.id.conditionImageView);
+            dayTextView = (TextView) itemView.findViewById(R.id.dayTextView);
+            lowTextView = (TextView) itemView.findViewById(R.id.lowTextView);
+            hiTextView = (TextView) itemView.findViewById(R.id.hiTextView);
+            humidityTextView = (TextView) itemView.findViewById(R.id.humidityTextView);
+        }
+
+        // show weather in this (new or reused) row, label is the text of the first line
+        void bind(Weather weather, String label, TemperatureUnit unit, IconLoader iconLoader) {
+            Context context = itemView.getContext();
+
+            // set icon image from cache, or load it in a separate thread.
+            // if this row was recycled, drop the request for the icon of the day it showed before
+            // (after starting the new one, so an icon shared by both days keeps its download).
+            IconLoader.Request previousRequest = iconRequest;
+            iconRequest = iconLoader.load(weather, conditionImageView);
+            if (previousRequest != null) {
+                previousRequest.cancel();
+            }
+
+            // bind other weather data to view
+            dayTextView.setText(label);
+            lowTextView.setText(context.getString(R.string.low_temp, weather.getMinTemp(unit)));
+            hiTextView.setText(context.getString(R.string.high_temp, weather.getMaxTemp(unit)));
+            humidityTextView.setText(context.getString(R.string.humidity, weather.getHumidity()));
+        }
+
+        // an empty row, for an entry that isn't loaded yet
+        void clear(IconLoader iconLoader) {
+            cancelIcon();
+            iconLoader.clear(conditionImageView); // lets go of the icon it showed
+            dayTextView.setText(null);
+            lowTextView.setText(null);
+            hiTextView.setText(null);
+            humidityTextView.setText(null);
+        }
+
+        // the row scrolled away and goes back to the pool, its icon isn't needed anymore
+        void cancelIcon() {
+            if (iconRequest != null) {
+                iconRequest.cancel();
+                iconRequest = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.lawrence.weather;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+// the parts of IconDecoder that don't need BitmapFactory
+public class IconDecoderTest {
+
+    private static final int RGB = 2;
+    private static final int PALETTE = 3;
+    private static final int RGBA = 6;
+
+    @Test
+    public void samplesDownToTheShownSize() {
+        assertEquals(1, IconDecoder.calculateInSampleSize(50, 50, 150, 150)); // never scales up
+        assertEquals(1, IconDecoder.calculateInSampleSize(150, 150, 150, 150));
+        assertEquals(1, IconDecoder.calculateInSampleSize(299, 299, 150, 150));
+        assertEquals(2, IconDecoder.calculateInSampleSize(300, 300, 150, 150));
+        assertEquals(4, IconDecoder.calculateInSampleSize(640, 640, 150, 150));
+        assertEquals(2, IconDecoder.calculateInSampleSize(640, 300, 150, 150)); // the short side decides
+    }
+
+    @Test
+    public void onlyPngsWithoutTransparencyAreOpaque() throws Exception {
+        assertTrue(IconDecoder.isOpaquePng(png(RGB, false)));
+        assertTrue(IconDecoder.isOpaquePng(png(PALETTE, false)));
+        assertFalse(IconDecoder.isOpaquePng(png(PALETTE, true)));
+        assertFalse(IconDecoder.isOpaquePng(png(RGB, true)));
+        assertFalse(IconDecoder.isOpaquePng(png(RGBA, false)));
+        assertFalse(IconDecoder.isOpaquePng("GIF89a, not a png at all...".getBytes("US-ASCII")));
+    }
+
+    @Test
+    public void brokenChunkLengthIsNotOpaque() throws Exception {
+        byte[] bytes = png(RGB, false);
+        // IHDR claims to be almost 2 GB long: skipping it must not overflow the offset
+        bytes[8] = 0x7f;
+        bytes[9] = (byte) 0xff;
+        bytes[10] = (byte) 0xff;
+        bytes[11] = (byte) 0xfb;
+        assertFalse(IconDecoder.isOpaquePng(bytes));
+
+        bytes[8] = 0;
+        bytes[9] = 0;
+        bytes[10] = 0;
+        bytes[11] = 0x40; // 64 bytes, longer than the whole file
+        assertFalse(IconDecoder.isOpaquePng(bytes));
+    }
+
+    // a PNG with just the chunks isOpaquePng() looks at (the CRCs aren't checked)
+    private static byte[] png(int colorType, boolean transparent) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'});
+
+        out.writeInt(13);
+        out.writeBytes("IHDR");
+        out.writeInt(50); // width
+        out.writeInt(50); // height
+        out.write(new byte[]{8, (byte) colorType, 0, 0, 0});
+        out.writeInt(0); // CRC
+
+        if (colorType == PALETTE) {
+            out.writeInt(3);
+            out.writeBytes("PLTE");
+            out.write(new byte[]{0, 0, 0});
+            out.writeInt(0);
+        }
+        if (transparent) {
+            out.writeInt(1);
+            out.writeBytes("tRNS");
+            out.write(0);
+            out.writeInt(0);
+        }
+
+        out.writeInt(1);
+        out.writeBytes("IDAT");
+        out.write(0);
+        out.writeInt(0);
+        return bytes.toByteArray();
+    }
+}
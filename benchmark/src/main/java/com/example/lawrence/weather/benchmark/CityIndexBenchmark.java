@@ -0,0 +1,74 @@
+package com.example.lawrence.weather.benchmark;
+
+import com.example.lawrence.weather.CityIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// The lookups behind the location field's suggestions (CitySearch): one search() per pause in
+// typing, over a city list the size of OpenWeatherMap's (about 200k cities). The names are
+// generated, so the benchmark doesn't need the real list.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CityIndexBenchmark {
+
+    private static final int SUGGESTIONS = 8;
+
+    @Param({"200000"})
+    public int cities;
+
+    // what the user typed so far: a letter, a few letters, a whole name
+    @Param({"s", "san", "sanbora"})
+    public String prefix;
+
+    private CityIndex index;
+
+    @Setup
+    public void setUp() {
+        index = build(cities);
+    }
+
+    @Benchmark
+    public List<CityIndex.City> search() {
+        return index.search(prefix, SUGGESTIONS);
+    }
+
+    @Benchmark
+    public CityIndex.City find() {
+        return index.find(prefix);
+    }
+
+    // names of 2-4 syllables, in random (unsorted) order like the raw OpenWeatherMap list
+    static CityIndex build(int count) {
+        String[] syllables = {"san", "bo", "ra", "ta", "ke", "li", "mon", "ville", "burg", "do", "na", "port"};
+        Random random = new Random(42);
+        CityIndex.Builder builder = new CityIndex.Builder();
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            name.setLength(0);
+            for (int n = 2 + random.nextInt(3); n > 0; --n) {
+                name.append(syllables[random.nextInt(syllables.length)]);
+            }
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            builder.add(i, name.toString(), random.nextBoolean() ? "US" : "DE");
+        }
+        return builder.build();
+    }
+}
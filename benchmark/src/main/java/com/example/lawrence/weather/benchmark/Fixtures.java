@@ -0,0 +1,41 @@
+package com.example.lawrence.weather.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+// Recorded OpenWeatherMap responses (core/src/test/resources) the benchmarks run on.
+final class Fixtures {
+
+    static final String DAILY_16 = "forecast_daily_16.json"; // forecast/daily, 16 days
+    static final String HOURLY_40 = "forecast_3hour_40.json"; // forecast, 5 days every 3 hours
+    static final String CITIES_100 = "group_100_cities.json"; // group, current weather of 100 cities
+
+    private Fixtures() {} // static methods only
+
+    static byte[] load(String fixture) throws IOException {
+        InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(fixture);
+        if (in == null) {
+            throw new IOException("missing fixture " + fixture);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    // a fresh reader over the payload, like the body of an HTTP response
+    static Reader reader(byte[] payload) throws IOException {
+        return new InputStreamReader(new ByteArrayInputStream(payload), "UTF-8");
+    }
+}
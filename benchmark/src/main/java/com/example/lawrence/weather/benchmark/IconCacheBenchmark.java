@@ -0,0 +1,59 @@
+package com.example.lawrence.weather.benchmark;
+
+import com.example.lawrence.weather.ForecastParser;
+import com.example.lawrence.weather.LruMemoryCache;
+import com.example.lawrence.weather.Weather;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The memory cache lookups WeatherAdapter.ViewHolder.bind() (from onBindViewHolder()) does
+// through IconLoader: one get(iconURL) per row, all hits once the icons of the forecast have been loaded.
+// (Bitmaps need the Android framework, so the cached values here are plain objects;
+// the lookup itself is the same LruMemoryCache code.)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IconCacheBenchmark {
+
+    @Param({Fixtures.DAILY_16, Fixtures.HOURLY_40, Fixtures.CITIES_100})
+    public String fixture;
+
+    private List<Weather> forecast;
+    private LruMemoryCache<String, Object> cache;
+
+    @Setup
+    public void setUp() throws IOException {
+        forecast = ForecastParser.parse(Fixtures.reader(Fixtures.load(fixture)));
+
+        // big enough for every OpenWeatherMap icon (18 codes)
+        cache = new LruMemoryCache<>(32);
+        for (Weather weather : forecast) {
+            cache.put(weather.getIconURL(), new Object());
+        }
+    }
+
+    @Benchmark
+    public void lookupAllRows(Blackhole blackhole) {
+        for (Weather weather : forecast) {
+            blackhole.consume(cache.get(weather.getIconURL()));
+        }
+    }
+}
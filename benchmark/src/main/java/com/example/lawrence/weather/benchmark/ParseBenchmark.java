@@ -0,0 +1,79 @@
+package com.example.lawrence.weather.benchmark;
+
+import com.example.lawrence.weather.ForecastParser;
+import com.example.lawrence.weather.Weather;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Decoding a response into Weather objects: ForecastParser (streaming) against the way
+// MainActivity.convertJSONtoArrayList() used to do it (whole body into a String, then JSONObject).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({Fixtures.DAILY_16, Fixtures.HOURLY_40, Fixtures.CITIES_100})
+    public String fixture;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        payload = Fixtures.load(fixture);
+    }
+
+    @Benchmark
+    public List<Weather> forecastParser() throws IOException {
+        return ForecastParser.parse(Fixtures.reader(payload));
+    }
+
+    @Benchmark
+    public List<Weather> jsonObject() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        BufferedReader reader = new BufferedReader(Fixtures.reader(payload));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            builder.append(line);
+        }
+
+        JSONArray list = new JSONObject(builder.toString()).getJSONArray("list");
+        List<Weather> forecast = new ArrayList<>();
+        for (int i = 0; i < list.length(); ++i) {
+            JSONObject data = list.getJSONObject(i);
+            JSONObject weather = data.getJSONArray("weather").getJSONObject(0);
+
+            // daily forecasts have "temp", 3 hour forecasts and current weather have "main"
+            JSONObject temperatures = data.optJSONObject("temp");
+            JSONObject main = data.optJSONObject("main");
+            forecast.add(new Weather(
+                    data.getLong("dt"),
+                    temperatures != null ? temperatures.getDouble("min") : main.getDouble("temp_min"),
+                    temperatures != null ? temperatures.getDouble("max") : main.getDouble("temp_max"),
+                    temperatures != null ? data.getDouble("humidity") : main.getDouble("humidity"),
+                    weather.getString("description"),
+                    weather.getString("icon")));
+        }
+        return forecast;
+    }
+}
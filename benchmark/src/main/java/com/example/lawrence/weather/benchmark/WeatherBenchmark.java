@@ -0,0 +1,87 @@
+package com.example.lawrence.weather.benchmark;
+
+import com.example.lawrence.weather.ForecastParser;
+import com.example.lawrence.weather.TemperatureUnit;
+import com.example.lawrence.weather.Weather;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Building the Weather objects of a response, and formatting them the way
+// WeatherAdapter.ViewHolder.bind() does when onBindViewHolder() binds the rows.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeatherBenchmark {
+
+    @Param({Fixtures.DAILY_16, Fixtures.HOURLY_40, Fixtures.CITIES_100})
+    public String fixture;
+
+    // the raw values of the fixture, so only the Weather objects are measured
+    private long[] timeStamps;
+    private double[] minTemps;
+    private double[] maxTemps;
+    private double[] humidities;
+    private String[] descriptions;
+    private String[] icons;
+
+    private List<Weather> forecast;
+
+    @Setup
+    public void setUp() throws IOException {
+        forecast = ForecastParser.parse(Fixtures.reader(Fixtures.load(fixture)));
+
+        int count = forecast.size();
+        timeStamps = new long[count];
+        minTemps = new double[count];
+        maxTemps = new double[count];
+        humidities = new double[count];
+        descriptions = new String[count];
+        icons = new String[count];
+        for (int i = 0; i < count; ++i) {
+            Weather weather = forecast.get(i);
+            timeStamps[i] = weather.getTimeStamp();
+            minTemps[i] = weather.getMinTempValue();
+            maxTemps[i] = weather.getMaxTempValue();
+            humidities[i] = weather.getHumidityValue();
+            descriptions[i] = weather.getDescription();
+            icons[i] = weather.getIconName();
+        }
+    }
+
+    @Benchmark
+    public void construct(Blackhole blackhole) {
+        for (int i = 0; i < timeStamps.length; ++i) {
+            blackhole.consume(new Weather(
+                    timeStamps[i], minTemps[i], maxTemps[i], humidities[i], descriptions[i], icons[i]));
+        }
+    }
+
+    // every row of the list bound once
+    @Benchmark
+    public void format(Blackhole blackhole) {
+        for (Weather weather : forecast) {
+            blackhole.consume(weather.getDayOfWeek());
+            blackhole.consume(weather.getMinTemp(TemperatureUnit.FAHRENHEIT));
+            blackhole.consume(weather.getMaxTemp(TemperatureUnit.FAHRENHEIT));
+            blackhole.consume(weather.getHumidity());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.lawrence.weather;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Refreshes the forecasts of several cities at once.
+// OpenWeatherMap's "group" endpoint only returns current conditions (and only by city ID),
+// there is no batch endpoint for daily forecasts, so we send one request per city, but
+// up to maxParallel of them at the same time. With N <= maxParallel cities a refresh takes
+// about one round trip instead of N.
+// Results are handed to the Listener one city at a time, as soon as each one is done. Like any
+// other download, each one is retried and goes through the circuit breaker of the caller shared
+// with the rest of the app (ResilientCaller), so a refresh doesn't hammer a server that's down.
+public class BatchForecastFetcher {
+
+    // called on the callback executor (the main UI thread in the app)
+    public interface Listener {
+        // FRESH, CACHED (the download failed, this is the saved copy) or FAILED
+        void onCityResult(String query, FetchResult<ForecastCache.Entry> result);
+        void onFinished();
+    }
+
+    // a running refresh. cancel() stops it from starting any more requests.
+    public static class Batch {
+        private volatile boolean cancelled;
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final ForecastFetcher fetcher;
+    private final ForecastUrls urls;
+    private final ResilientCaller caller;
+    private final Executor workExecutor;
+    private final Executor callbackExecutor;
+    private final int maxParallel;
+
+    public BatchForecastFetcher(ForecastFetcher fetcher, ForecastUrls urls, ResilientCaller caller,
+                                Executor workExecutor, Executor callbackExecutor, int maxParallel) {
+        this.fetcher = fetcher;
+        this.urls = urls;
+        this.caller = caller;
+        this.workExecutor = workExecutor;
+        this.callbackExecutor = callbackExecutor;
+        this.maxParallel = maxParallel;
+    }
+
+    public Batch fetchAll(final List<String> queries, final Listener listener) {
+        final Batch batch = new Batch();
+        final AtomicInteger remaining = new AtomicInteger(queries.size());
+
+        if (queries.isEmpty()) {
+            callbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onFinished();
+                }
+            });
+            return batch;
+        }
+
+        // a few workers that each take the next city off the list until it's empty, so at most
+        // maxParallel requests are running (or queued) at any time. cities whose worker was dropped
+        // from a full queue count as failed, so onFinished() still comes.
+        FanOut.run(workExecutor, queries.size(), maxParallel, new FanOut.Work() {
+            @Override
+            public boolean isCancelled() {
+                return batch.isCancelled();
+            }
+
+            @Override
+            public void process(int index) {
+                fetchOne(batch, queries.get(index), listener);
+                countDown();
+            }
+
+            @Override
+            public void fail(int index, RuntimeException e) {
+                deliver(batch, queries.get(index), FetchResult.<ForecastCache.Entry>failed(
+                        new IOException(e)), listener);
+                countDown();
+            }
+
+            @Override
+            public void drop(int index) {
+                deliver(batch, queries.get(index), FetchResult.<ForecastCache.Entry>failed(
+                        new IOException("Cancelled before it started")), listener);
+                countDown();
+            }
+
+            private void countDown() {
+                if (remaining.decrementAndGet() == 0) {
+                    deliverFinished(batch, listener);
+                }
+            }
+        });
+
+        return batch;
+    }
+
+    private void fetchOne(Batch batch, String query, Listener listener) {
+        URL url = urls.forCity(query);
+        deliver(batch, query, url != null
+                ? fetcher.fetch(query, url, caller)
+                : FetchResult.<ForecastCache.Entry>failed(new MalformedURLException("Invalid URL for " + query)),
+                listener);
+    }
+
+    private void deliver(final Batch batch, final String query, final FetchResult<ForecastCache.Entry> result,
+                         final Listener listener) {
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (batch.isCancelled()) {
+                    return;
+                }
+                listener.onCityResult(query, result);
+            }
+        });
+    }
+
+    private void deliverFinished(final Batch batch, final Listener listener) {
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!batch.isCancelled()) {
+                    listener.onFinished();
+                }
+            }
+        });
+    }
+}
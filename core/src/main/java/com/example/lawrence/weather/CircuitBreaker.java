@@ -0,0 +1,70 @@
+package com.example.lawrence.weather;
+
+import java.io.IOException;
+
+// Stops sending requests to a server that keeps failing.
+// After failureThreshold failures in a row the circuit "opens": for openMillis every request
+// fails right away (allowRequest() returns false) instead of waiting for another timeout, and the
+// caller shows what it has cached. After that one request is let through as a trial
+// ("half open"): if it works the circuit closes again, if it fails it stays open for another
+// openMillis. Only failures of the server count (see RetryPolicy.isTransient()), a city that
+// doesn't exist doesn't say anything about the server.
+// Thread safe, it's shared by all the forecast downloads.
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    // thrown instead of sending a request while the circuit is open
+    public static class OpenException extends IOException {
+        public OpenException(String message) {
+            super(message);
+        }
+    }
+
+    private final Clock clock;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private int consecutiveFailures;
+    private long openedAt;
+    private State state = State.CLOSED;
+
+    public CircuitBreaker(Clock clock, int failureThreshold, long openMillis) {
+        this.clock = clock;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    // true if a request may be sent now. while half open only the first caller gets true,
+    // the others wait for the outcome of that trial request (or for another openMillis, in case
+    // the trial was cancelled and never reported back).
+    public synchronized boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        long now = clock.currentTimeMillis();
+        if (now - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            openedAt = now; // when the trial started
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.currentTimeMillis();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.lawrence.weather;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Prefix index over the bundled city list, for the suggestions while the user types.
+// A list of 200k cities would be a few hundred thousand objects as Strings/Cities, so the
+// names are packed into one char[] instead, with the start of each name in an int[], and the
+// ids and countries in primitive arrays too. order[] holds the cities sorted by name (case and
+// accents ignored), so a lookup is a binary search for the first name >= the prefix and then a
+// walk over the names that start with it: microseconds, and no allocation but the results.
+//
+// The list is a text file with one city per line: id <tab> name <tab> country code.
+// This is plain Java so it can be unit tested and benchmarked on the JVM.
+public class CityIndex {
+
+    // a city from the list
+    public static class City {
+        private final int id;
+        private final String name;
+        private final String country;
+
+        public City(int id, String name, String country) {
+            this.id = id;
+            this.name = name;
+            this.country = country;
+        }
+
+        // OpenWeatherMap city id, for the "id=" API urls
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getCountry() {
+            return country;
+        }
+
+        // what the suggestion shows, and the query it puts in the location field
+        @Override
+        public String toString() {
+            return country.isEmpty() ? name : name + ", " + country;
+        }
+    }
+
+    // lowercase without accents for the first 256 chars (covers most Latin city names),
+    // computed once instead of running Normalizer for every compared char
+    private static final char[] FOLD = new char[256];
+
+    static {
+        for (char c = 0; c < FOLD.length; ++c) {
+            String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            FOLD[c] = Character.toLowerCase(decomposed.charAt(0));
+        }
+    }
+
+    private final char[] names; // all names, one after the other
+    private final int[] offsets; // start of name i in names, offsets[size] is the end
+    private final int[] ids;
+    private final char[] countries; // 2 chars per city
+    private final int[] order; // city numbers sorted by folded name, then country
+
+    private CityIndex(char[] names, int[] offsets, int[] ids, char[] countries, int size) {
+        this.names = names;
+        this.offsets = offsets;
+        this.ids = ids;
+        this.countries = countries;
+
+        this.order = sortByName(size);
+    }
+
+    public static CityIndex read(Reader reader) throws IOException {
+        Builder builder = new Builder();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            int firstTab = line.indexOf('\t');
+            int secondTab = line.indexOf('\t', firstTab + 1);
+            if (firstTab <= 0 || secondTab < 0) {
+                continue; // empty or broken line
+            }
+            try {
+                builder.add(Integer.parseInt(line.substring(0, firstTab)),
+                        line.substring(firstTab + 1, secondTab), line.substring(secondTab + 1));
+            } catch (NumberFormatException e) {
+                // not a city id, skip the line
+            }
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return order.length;
+    }
+
+    // the first (at most) limit cities whose name starts with prefix, sorted by name
+    public List<City> search(String prefix, int limit) {
+        String key = fold(prefix.trim());
+        List<City> cities = new ArrayList<>(Math.min(limit, 16));
+        if (key.isEmpty()) {
+            return cities;
+        }
+
+        for (int i = lowerBound(key); i < order.length && cities.size() < limit; ++i) {
+            int city = order[i];
+            if (!startsWith(city, key)) {
+                break;
+            }
+            cities.add(city(city));
+        }
+        return cities;
+    }
+
+    // the city the query names exactly ("Paris, FR", or "Tokyo" if there's only one), or null
+    // if the list doesn't have it or the name alone is ambiguous ("Paris" is in FR and US)
+    public City find(String query) {
+        String name = query;
+        String country = null;
+        int comma = query.lastIndexOf(',');
+        if (comma >= 0) {
+            name = query.substring(0, comma);
+            country = query.substring(comma + 1).trim();
+        }
+
+        String key = fold(name.trim());
+        if (key.isEmpty()) {
+            return null;
+        }
+        // a shorter name sorts first, so the exact matches come before "Londonderry" etc.
+        int found = -1;
+        for (int i = lowerBound(key); i < order.length && compare(order[i], key) == 0; ++i) {
+            int city = order[i];
+            if (country != null && !country.equalsIgnoreCase(country(city))) {
+                continue;
+            }
+            if (found >= 0) {
+                return null; // more than one
+            }
+            found = city;
+        }
+        return found >= 0 ? city(found) : null;
+    }
+
+    // position in order of the first name that is >= key
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(order[middle], key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // compares the folded name of city with key (already folded)
+    private int compare(int city, String key) {
+        int start = offsets[city];
+        int length = offsets[city + 1] - start;
+        int n = Math.min(length, key.length());
+        for (int i = 0; i < n; ++i) {
+            int difference = fold(names[start + i]) - key.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length();
+    }
+
+    private boolean startsWith(int city, String key) {
+        int start = offsets[city];
+        if (offsets[city + 1] - start < key.length()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); ++i) {
+            if (fold(names[start + i]) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private City city(int city) {
+        return new City(ids[city], new String(names, offsets[city], offsets[city + 1] - offsets[city]), country(city));
+    }
+
+    private String country(int city) {
+        char first = countries[2 * city];
+        char second = countries[2 * city + 1];
+        if (first == 0) {
+            return "";
+        }
+        return second == 0 ? String.valueOf(first) : new String(countries, 2 * city, 2);
+    }
+
+    // the cities sorted by folded name (then country), as a merge sort over an int[],
+    // so sorting 200k cities doesn't box 200k Integers for a Comparator
+    private int[] sortByName(int size) {
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; ++i) {
+            sorted[i] = i;
+        }
+        int[] buffer = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size - width; low += 2 * width) {
+                merge(sorted, buffer, low, low + width, Math.min(low + 2 * width, size));
+            }
+        }
+        return sorted;
+    }
+
+    private void merge(int[] sorted, int[] buffer, int low, int middle, int high) {
+        if (compareCities(sorted[middle - 1], sorted[middle]) <= 0) {
+            return; // already in order (a sorted list only takes this path)
+        }
+        System.arraycopy(sorted, low, buffer, low, high - low);
+        int i = low;
+        int j = middle;
+        for (int k = low; k < high; ++k) {
+            if (i < middle && (j >= high || compareCities(buffer[i], buffer[j]) <= 0)) {
+                sorted[k] = buffer[i++];
+            } else {
+                sorted[k] = buffer[j++];
+            }
+        }
+    }
+
+    private int compareCities(int a, int b) {
+        int aStart = offsets[a];
+        int bStart = offsets[b];
+        int aLength = offsets[a + 1] - aStart;
+        int bLength = offsets[b + 1] - bStart;
+        int n = Math.min(aLength, bLength);
+        for (int i = 0; i < n; ++i) {
+            int difference = fold(names[aStart + i]) - fold(names[bStart + i]);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        if (aLength != bLength) {
+            return aLength - bLength;
+        }
+        for (int i = 0; i < 2; ++i) {
+            int difference = countries[2 * a + i] - countries[2 * b + i];
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+
+    private static char fold(char c) {
+        return c < FOLD.length ? FOLD[c] : Character.toLowerCase(c);
+    }
+
+    static String fold(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; ++i) {
+            chars[i] = fold(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    // collects the cities into growing primitive arrays (like an ArrayList, without objects)
+    public static class Builder {
+        private char[] names = new char[4096];
+        private int[] offsets = new int[512];
+        private int[] ids = new int[512];
+        private char[] countries = new char[1024];
+        private int size;
+        private int length; // chars used in names
+
+        public Builder add(int id, String name, String country) {
+            if (size + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                ids = Arrays.copyOf(ids, ids.length * 2);
+                countries = Arrays.copyOf(countries, countries.length * 2);
+            }
+            if (length + name.length() > names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, length + name.length()));
+            }
+
+            name.getChars(0, name.length(), names, length);
+            offsets[size] = length;
+            length += name.length();
+            offsets[size + 1] = length;
+            ids[size] = id;
+            for (int i = 0; i < 2 && i < country.length(); ++i) {
+                countries[2 * size + i] = country.charAt(i);
+            }
+            size++;
+            return this;
+        }
+
+        public CityIndex build() {
+            // trim the arrays to what is used, the index lives as long as the app
+            return new CityIndex(Arrays.copyOf(names, length), Arrays.copyOf(offsets, size + 1),
+                    Arrays.copyOf(ids, size), Arrays.copyOf(countries, 2 * size), size);
+        }
+    }
+}
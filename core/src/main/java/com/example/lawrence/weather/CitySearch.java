@@ -0,0 +1,79 @@
+package com.example.lawrence.weather;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Suggestions for the location field while the user types.
+// Every keystroke restarts a short delay (debounce), so a fast typist triggers one lookup when
+// they pause instead of one per letter. A newer query cancels the lookup of an older one that
+// hasn't run yet, and results that are overtaken while they're on their way are dropped, so
+// the suggestions never jump back to what was typed before.
+// query() and cancel() are called on the main UI thread; results are delivered through
+// callbackExecutor (the main UI thread in the app).
+public class CitySearch {
+
+    public interface Callback {
+        void onResults(String query, List<CityIndex.City> cities);
+    }
+
+    private final CityIndex index;
+    private final ScheduledExecutorService scheduler;
+    private final Executor callbackExecutor;
+    private final long debounceMillis;
+    private final int limit;
+
+    // the lookup waiting for its delay (or running), null if none
+    private ScheduledFuture<?> pending;
+
+    // bumped for every query() and cancel(), results of older lookups are ignored
+    private volatile int generation;
+
+    public CitySearch(CityIndex index, ScheduledExecutorService scheduler, Executor callbackExecutor,
+                      long debounceMillis, int limit) {
+        this.index = index;
+        this.scheduler = scheduler;
+        this.callbackExecutor = callbackExecutor;
+        this.debounceMillis = debounceMillis;
+        this.limit = limit;
+    }
+
+    // the text in the location field changed
+    public void query(final String text, final Callback callback) {
+        cancelPending();
+        final int lookup = ++generation;
+        pending = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                final List<CityIndex.City> cities = index.search(text, limit);
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (lookup == generation) {
+                            callback.onResults(text, cities);
+                        }
+                    }
+                });
+            }
+        }, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // drop the lookup in progress (e.g. a suggestion was picked, or the search was started)
+    public void cancel() {
+        cancelPending();
+        generation++;
+    }
+
+    public CityIndex getIndex() {
+        return index;
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+}
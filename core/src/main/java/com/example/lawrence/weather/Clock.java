@@ -0,0 +1,16 @@
+package com.example.lawrence.weather;
+
+// Source of the current time, so code that schedules or expires things can be tested with
+// a fake clock instead of waiting for real time to pass.
+public interface Clock {
+
+    // milliseconds since 1970 (UTC), like System.currentTimeMillis()
+    long currentTimeMillis();
+
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+}
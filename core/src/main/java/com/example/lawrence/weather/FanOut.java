@@ -0,0 +1,88 @@
+package com.example.lawrence.weather;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Works through the items of a list on at most maxParallel threads of an executor: a few workers
+// that each take the next item until the list is empty, so a long list doesn't become one queued
+// task per item (used by BatchForecastFetcher and ForecastClient.aggregate()).
+// The workers are FutureTasks. The NetworkExecutors pools cancel the oldest waiting task when
+// their queue is full, and a worker that is cancelled (or rejected) before the list is empty
+// mustn't leave items nobody accounts for: when the last worker ends, every item that wasn't
+// taken is handed to drop(), so a caller that counts its items down still gets to the end.
+// For the same reason an item whose process() throws is handed to fail(), and the worker goes
+// on with the next one.
+final class FanOut {
+    private static final Logger LOG = Logger.getLogger(FanOut.class.getName());
+
+    interface Work {
+        // true to stop taking items (the remaining ones are neither processed nor dropped)
+        boolean isCancelled();
+
+        // called on a worker thread
+        void process(int index);
+
+        // process() threw e (a bug): the item counts as failed. called on the same worker thread
+        void fail(int index, RuntimeException e);
+
+        // the item won't be processed, its worker was cancelled before it got to it
+        void drop(int index);
+    }
+
+    private FanOut() {} // static methods only
+
+    static void run(Executor executor, final int size, int maxParallel, final Work work) {
+        final AtomicInteger next = new AtomicInteger();
+        int workers = Math.min(maxParallel, size);
+        final AtomicInteger running = new AtomicInteger(workers);
+        for (int i = 0; i < workers; ++i) {
+            FutureTask<Void> worker = new FutureTask<Void>(new Runnable() {
+                @Override
+                public void run() {
+                    int index;
+                    while (!work.isCancelled() && (index = next.getAndIncrement()) < size) {
+                        try {
+                            work.process(index);
+                        } catch (RuntimeException e) {
+                            LOG.log(Level.WARNING, "Item " + index + " failed", e);
+                            work.fail(index, e);
+                        }
+                    }
+                }
+            }, null) {
+                @Override
+                protected void done() {
+                    if (running.decrementAndGet() == 0) {
+                        int index;
+                        while (!work.isCancelled() && (index = next.getAndIncrement()) < size) {
+                            work.drop(index);
+                        }
+                    }
+                    rethrowFailure(this);
+                }
+            };
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                worker.cancel(false); // the same as being dropped from the queue
+            }
+        }
+    }
+
+    // a bug in fail() or drop() shouldn't disappear inside the FutureTask
+    private static void rethrowFailure(FutureTask<Void> worker) {
+        try {
+            worker.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (CancellationException | InterruptedException e) {
+            // cancelled, the items were dropped
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.lawrence.weather;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+
+// The outcome of a forecast download, handed to the main UI thread as a value instead of an
+// exception or an error flag on the task:
+//  - FRESH: downloaded (or revalidated) just now
+//  - CACHED: the download failed, value is the copy we had saved. getFailure() says why.
+//  - FAILED: the download failed and there's nothing saved, value is null
+public class FetchResult<T> {
+
+    public enum Status { FRESH, CACHED, FAILED }
+
+    // why a download failed, so the user can be told something more useful than "error"
+    public enum Failure {
+        NONE,
+        TIMEOUT,        // the server took too long to connect or to answer
+        NO_CONNECTION,  // the server couldn't be reached (no network, refused, reset, ...)
+        SERVER_ERROR,   // the server answered with an error
+        NOT_FOUND,      // there's no forecast for the query (or no url could be made for it)
+        BAD_RESPONSE,   // the response wasn't a forecast
+        UNAVAILABLE     // the server kept failing, we aren't asking it for a while (CircuitBreaker)
+    }
+
+    private final Status status;
+    private final T value;
+    private final Failure failure;
+    private final IOException error;
+
+    private FetchResult(Status status, T value, IOException error) {
+        this.status = status;
+        this.value = value;
+        this.error = error;
+        this.failure = error != null ? classify(error) : Failure.NONE;
+    }
+
+    public static <T> FetchResult<T> fresh(T value) {
+        return new FetchResult<>(Status.FRESH, value, null);
+    }
+
+    // the download failed with error, but we have value saved
+    public static <T> FetchResult<T> cached(T value, IOException error) {
+        return new FetchResult<>(Status.CACHED, value, error);
+    }
+
+    public static <T> FetchResult<T> failed(IOException error) {
+        return new FetchResult<>(Status.FAILED, null, error);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    // the forecast to show, null if FAILED
+    public T getValue() {
+        return value;
+    }
+
+    public Failure getFailure() {
+        return failure;
+    }
+
+    // the exception the download failed with, null if FRESH
+    public IOException getError() {
+        return error;
+    }
+
+    static Failure classify(IOException e) {
+        if (e instanceof CircuitBreaker.OpenException) {
+            return Failure.UNAVAILABLE;
+        }
+        if (e instanceof SocketTimeoutException) {
+            return Failure.TIMEOUT;
+        }
+        if (e instanceof JsonPullReader.MalformedJsonException) {
+            return Failure.BAD_RESPONSE;
+        }
+        if (e instanceof MalformedURLException) {
+            return Failure.NOT_FOUND;
+        }
+        if (e instanceof HttpClient.HttpException) {
+            return ((HttpClient.HttpException) e).getCode() == HttpURLConnection.HTTP_NOT_FOUND
+                    ? Failure.NOT_FOUND
+                    : Failure.SERVER_ERROR;
+        }
+        return Failure.NO_CONNECTION;
+    }
+
+    @Override
+    public String toString() {
+        return "FetchResult[" + status + (failure != Failure.NONE ? "," + failure : "") + "]";
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.lawrence.weather;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Saves downloaded forecasts to disk so that we can show them right away (even after the app
+// was killed) and only go to the network when the saved copy is older than the TTL.
+// Each city is stored in its own small binary file (DataOutputStream), which is much smaller
+// and faster to read back than the original JSON.
+// Downloads are merged into what is already saved (merge()): days are keyed by their timestamp,
+// so a new response replaces the days it has and keeps the later ones it doesn't have.
+public class ForecastCache {
+
+    private static final Logger LOG = Logger.getLogger(ForecastCache.class.getName());
+
+    // bump this if the file layout changes, old files are then ignored
+    private static final int FORMAT_VERSION = 2;
+
+    // more days than any response has (a daily forecast has 16, a page of the 3 hour one 8).
+    // a larger count in a file means the file is corrupt.
+    static final int MAX_FORECAST_SIZE = 1000;
+
+    // merge() reads, upserts and writes. two downloads of the same city mustn't both read the old
+    // file, or the second write loses the days of the first, so a merge holds the lock of its file.
+    // striped (a lock per file would keep growing), and static: the activity, the fragment and
+    // the prefetch service each have their own ForecastCache on the same directory.
+    private static final Object[] MERGE_LOCKS = new Object[16];
+
+    static {
+        for (int i = 0; i < MERGE_LOCKS.length; ++i) {
+            MERGE_LOCKS[i] = new Object();
+        }
+    }
+
+    private final File directory;
+    private final long ttlMillis;
+
+    // a cached forecast for one city
+    public static class Entry {
+        private final String query;
+        private final String city;
+        private final long fetchedAt;
+        private final List<Weather> forecast;
+
+        // HTTP validators from the response, used to ask the server "has this changed?"
+        private final String etag;
+        private final long lastModified;
+
+        public Entry(String query, String city, long fetchedAt, List<Weather> forecast,
+                     String etag, long lastModified) {
+            this.query = query;
+            this.city = city;
+            this.fetchedAt = fetchedAt;
+            this.forecast = Collections.unmodifiableList(forecast);
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        // normalized query the forecast was saved under
+        public String getQuery() {
+            return query;
+        }
+
+        // city name as returned by OpenWeatherMap (may be null)
+        public String getCity() {
+            return city;
+        }
+
+        // System.currentTimeMillis() when the data was downloaded
+        public long getFetchedAt() {
+            return fetchedAt;
+        }
+
+        public List<Weather> getForecast() {
+            return forecast;
+        }
+
+        // ETag header of the response (null if the server didn't send one)
+        public String getETag() {
+            return etag;
+        }
+
+        // Last-Modified header of the response (0 if the server didn't send one)
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+
+    public ForecastCache(File directory, long ttlMillis) {
+        this.directory = directory;
+        this.ttlMillis = ttlMillis;
+    }
+
+    // "  New York,  NY " and "new york, ny" should hit the same cache entry
+    public static String normalize(String query) {
+        return query.trim()
+                .toLowerCase(Locale.US)
+                .replaceAll("\\s+", " ")
+                .replaceAll(" ?, ?", ",");
+    }
+
+    // entries older than the TTL should still be shown, but refreshed in the background
+    public boolean isStale(Entry entry, long now) {
+        return now - entry.getFetchedAt() >= ttlMillis;
+    }
+
+    // returns the saved forecast for the query, or null if there is none (or it can't be read)
+    public Entry get(String query) {
+        String key = normalize(query);
+        File file = fileFor(key);
+        if (!file.exists()) {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+
+            // different queries can have the same hash, make sure this file is really ours
+            if (!key.equals(in.readUTF())) {
+                return null;
+            }
+
+            String city = readString(in);
+            long fetchedAt = in.readLong();
+            String etag = readString(in);
+            long lastModified = in.readLong();
+
+            List<Weather> forecast = readForecast(in);
+
+            return new Entry(key, city, fetchedAt, forecast, etag, lastModified);
+        } catch (IOException | RuntimeException e) {
+            // corrupt or truncated file, treat it as a cache miss
+            LOG.log(Level.WARNING, "Unable to read " + file, e);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    // save a forecast. this does disk I/O, so don't call it on the main UI thread.
+    public Entry put(String query, String city, List<Weather> forecast, long fetchedAt) throws IOException {
+        return put(query, city, forecast, fetchedAt, null, 0);
+    }
+
+    public Entry put(String query, String city, List<Weather> forecast, long fetchedAt,
+                     String etag, long lastModified) throws IOException {
+        String key = normalize(query);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        // write to a temp file first and then rename it, so a crash halfway through
+        // never leaves a half written cache file behind. the temp file is per thread: the
+        // foreground download, the saved locations refresh and the prefetch service can all be
+        // saving the same city at once, and mustn't write into each other's temp file.
+        File file = fileFor(key);
+        File temp = tempFileFor(file);
+
+        DataOutputStream out = null;
+        boolean written = false;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(key);
+            writeString(out, city);
+            out.writeLong(fetchedAt);
+            writeString(out, etag);
+            out.writeLong(lastModified);
+
+            writeForecast(out, forecast);
+            out.close();
+            out = null;
+            written = true;
+        } finally {
+            closeQuietly(out);
+            if (!written) {
+                temp.delete();
+            }
+        }
+
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Unable to write " + file);
+        }
+
+        return new Entry(key, city, fetchedAt, forecast, etag, lastModified);
+    }
+
+    // save a new download on top of the saved forecast for the query (an "upsert" by day):
+    // days in the response replace the saved days with the same timestamp, saved days after the
+    // end of the response are kept, and saved days before its first day (the past) are dropped.
+    public Entry merge(String query, String city, List<Weather> forecast, long fetchedAt,
+                       String etag, long lastModified) throws IOException {
+        synchronized (lockFor(fileFor(normalize(query)))) {
+            Entry saved = get(query);
+            if (saved != null) {
+                forecast = upsert(saved.getForecast(), forecast);
+                if (city == null) {
+                    city = saved.getCity();
+                }
+            }
+            return put(query, city, forecast, fetchedAt, etag, lastModified);
+        }
+    }
+
+    private static Object lockFor(File file) {
+        return MERGE_LOCKS[(file.getAbsolutePath().hashCode() & 0x7fffffff) % MERGE_LOCKS.length];
+    }
+
+    static List<Weather> upsert(List<Weather> saved, List<Weather> update) {
+        if (update.isEmpty()) {
+            return saved;
+        }
+
+        TreeMap<Long, Weather> days = new TreeMap<>();
+        long first = Long.MAX_VALUE;
+        for (Weather weather : update) {
+            first = Math.min(first, weather.getTimeStamp());
+        }
+        for (Weather weather : saved) {
+            if (weather.getTimeStamp() >= first) {
+                days.put(weather.getTimeStamp(), weather);
+            }
+        }
+        for (Weather weather : update) {
+            days.put(weather.getTimeStamp(), weather);
+        }
+        return new ArrayList<>(days.values());
+    }
+
+    // the server said our copy is still current ("304 Not Modified"), so it's fresh again
+    public Entry touch(Entry entry, long fetchedAt) throws IOException {
+        return put(entry.getQuery(), entry.getCity(), entry.getForecast(), fetchedAt,
+                entry.getETag(), entry.getLastModified());
+    }
+
+    private File fileFor(String key) {
+        return new File(directory, "forecast_" + Integer.toHexString(key.hashCode()) + ".bin");
+    }
+
+    // a temp file next to file that no other thread writes to at the same time
+    static File tempFileFor(File file) {
+        return new File(file.getParentFile(), file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+    }
+
+    // the days of a forecast, also used by ForecastPageStore
+    static void writeForecast(DataOutputStream out, List<Weather> forecast) throws IOException {
+        out.writeInt(forecast.size());
+        for (Weather weather : forecast) {
+            out.writeLong(weather.getTimeStamp());
+            out.writeDouble(weather.getMinTempValue());
+            out.writeDouble(weather.getMaxTempValue());
+            out.writeDouble(weather.getHumidityValue());
+            writeString(out, weather.getDescription());
+            writeString(out, weather.getIconName());
+        }
+    }
+
+    static List<Weather> readForecast(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_FORECAST_SIZE) {
+            throw new IOException("Corrupt forecast: " + count + " days");
+        }
+        List<Weather> forecast = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            forecast.add(new Weather(
+                    in.readLong(), // timestamp
+                    in.readDouble(), // min temp
+                    in.readDouble(), // max temp
+                    in.readDouble(), // humidity
+                    readString(in), // description
+                    readString(in) // icon name
+            ));
+        }
+        return forecast;
+    }
+
+    // writeUTF() doesn't accept null, so prefix each string with a "present" flag
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    static void closeQuietly(java.io.Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // nothing useful we can do
+            }
+        }
+    }
+}
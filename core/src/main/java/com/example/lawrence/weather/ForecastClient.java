@@ -0,0 +1,288 @@
+package com.example.lawrence.weather;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The asynchronous API of the forecast core. Downloads run on workExecutor and never throw:
+// every outcome is a FetchResult (fresh, cached because the download failed, or failed), handed
+// to a Callback on callbackExecutor and also available from the returned Future.
+//  - fetch(), fetchHourly(): one city, retried and behind the circuit breaker (ResilientCaller)
+//  - readCached(): the saved daily forecast of one city, read from disk on workExecutor as well
+//  - aggregate(): many cities (thousands are fine), at most maxParallel requests at a time, each
+//    result folded into one value by an Aggregator as soon as it arrives
+// Cancelling a Future (cancel(true) also interrupts the download) means its callback is never
+// called. Otherwise the callback is always called, also when the executor drops the download
+// from its full queue (NetworkExecutors): that is a FAILED result, not a cancelled Future, so a
+// caller keeping track of its downloads hears about every one it didn't cancel itself. In the app the work runs on NetworkExecutors.FORECAST and the callbacks on the main UI
+// thread; a job on the JVM can use its own thread pool and run the callbacks right away.
+public class ForecastClient {
+
+    // called on the callback executor. may be null, if the Future is enough.
+    public interface Callback<T> {
+        void onResult(String query, FetchResult<T> result);
+    }
+
+    // folds the results of aggregate() into one value. add() is called once per query, on the
+    // worker threads in the order the downloads finish, but never by two threads at once.
+    public interface Aggregator<A> {
+        void add(String query, FetchResult<ForecastCache.Entry> result);
+
+        // the value for the Future, after the last add()
+        A finish();
+    }
+
+    private final ForecastUrls urls;
+    private final ForecastFetcher fetcher;
+    private final HourlyForecastFetcher hourlyFetcher;
+    private final ResilientCaller caller;
+    private final Executor workExecutor;
+    private final Executor callbackExecutor;
+
+    // hourlyFetcher may be null if fetchHourly() isn't used
+    public ForecastClient(ForecastUrls urls, ForecastFetcher fetcher, HourlyForecastFetcher hourlyFetcher,
+                          ResilientCaller caller, Executor workExecutor, Executor callbackExecutor) {
+        this.urls = urls;
+        this.fetcher = fetcher;
+        this.hourlyFetcher = hourlyFetcher;
+        this.caller = caller;
+        this.workExecutor = workExecutor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    // download the daily forecast for query
+    public Future<FetchResult<ForecastCache.Entry>> fetch(String query, Callback<ForecastCache.Entry> callback) {
+        return fetch(query, urls.forCity(query), callback);
+    }
+
+    // download the daily forecast for query from url (e.g. a url with the city's id)
+    public Future<FetchResult<ForecastCache.Entry>> fetch(final String query, final URL url,
+                                                          Callback<ForecastCache.Entry> callback) {
+        return submit(query, new Callable<FetchResult<ForecastCache.Entry>>() {
+            @Override
+            public FetchResult<ForecastCache.Entry> call() {
+                return fetchNow(query, url);
+            }
+        }, callback);
+    }
+
+    // the saved daily forecast for query without downloading it: CACHED, or FAILED if nothing
+    // is saved for query
+    public Future<FetchResult<ForecastCache.Entry>> readCached(final String query,
+                                                               Callback<ForecastCache.Entry> callback) {
+        return submit(query, new Callable<FetchResult<ForecastCache.Entry>>() {
+            @Override
+            public FetchResult<ForecastCache.Entry> call() {
+                ForecastCache.Entry cached = fetcher.getCached(query);
+                return cached != null
+                        ? FetchResult.cached(cached, null)
+                        : FetchResult.<ForecastCache.Entry>failed(new FileNotFoundException("No saved forecast for " + query));
+            }
+        }, callback);
+    }
+
+    // download the 3 hour forecast for query from url. its pages are handed to pages (on the
+    // callback executor as well) while the rest is still downloading.
+    public Future<FetchResult<ForecastPageStore.Index>> fetchHourly(final String query, final URL url,
+                                                                    final HourlyForecastFetcher.Listener pages,
+                                                                    Callback<ForecastPageStore.Index> callback) {
+        return submit(query, new Callable<FetchResult<ForecastPageStore.Index>>() {
+            @Override
+            public FetchResult<ForecastPageStore.Index> call() {
+                if (url == null) {
+                    return FetchResult.failed(invalidUrl(query));
+                }
+                return hourlyFetcher.fetch(query, url, new HourlyForecastFetcher.Listener() {
+                    @Override
+                    public void onCity(final String city) {
+                        callbackExecutor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                pages.onCity(city);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onPage(final int page, final List<Weather> weathers) {
+                        callbackExecutor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                pages.onPage(page, weathers);
+                            }
+                        });
+                    }
+                }, caller);
+            }
+        }, callback);
+    }
+
+    // download the daily forecasts of all queries, at most maxParallel at a time, and fold them
+    // into one value with aggregator. the Future has the value of aggregator.finish(); cancelling
+    // it stops the downloads that haven't started yet.
+    public <A> Future<A> aggregate(final List<String> queries, int maxParallel, Aggregator<A> aggregator) {
+        final Aggregation<A> aggregation = new Aggregation<>(aggregator);
+        if (queries.isEmpty()) {
+            aggregation.complete();
+            return aggregation;
+        }
+
+        // a few workers that each take the next city off the list until it's empty, so thousands
+        // of cities don't become thousands of queued tasks. a city whose worker was dropped from
+        // a full queue is added as FAILED, so the aggregation still completes.
+        final AtomicInteger remaining = new AtomicInteger(queries.size());
+        FanOut.run(workExecutor, queries.size(), maxParallel, new FanOut.Work() {
+            @Override
+            public boolean isCancelled() {
+                return aggregation.isDone();
+            }
+
+            @Override
+            public void process(int index) {
+                String query = queries.get(index);
+                add(query, fetchNow(query, urls.forCity(query)));
+            }
+
+            @Override
+            public void fail(int index, RuntimeException e) {
+                add(queries.get(index), FetchResult.<ForecastCache.Entry>failed(new IOException(e)));
+            }
+
+            @Override
+            public void drop(int index) {
+                add(queries.get(index), FetchResult.<ForecastCache.Entry>failed(
+                        new IOException("Cancelled before it started")));
+            }
+
+            private void add(String query, FetchResult<ForecastCache.Entry> result) {
+                try {
+                    aggregation.add(query, result);
+                    if (remaining.decrementAndGet() == 0) {
+                        aggregation.complete();
+                    }
+                } catch (RuntimeException e) {
+                    aggregation.fail(e);
+                }
+            }
+        });
+        return aggregation;
+    }
+
+    private FetchResult<ForecastCache.Entry> fetchNow(String query, URL url) {
+        if (url == null) {
+            return FetchResult.failed(invalidUrl(query));
+        }
+        return fetcher.fetch(query, url, caller);
+    }
+
+    private static IOException invalidUrl(String query) {
+        return new MalformedURLException("Invalid URL for " + query);
+    }
+
+    private <T> Future<FetchResult<T>> submit(String query, Callable<FetchResult<T>> work, Callback<T> callback) {
+        final Call<T> call = new Call<>(query, work, callback);
+        // the executor gets a task of its own that runs the call. if a full queue drops (cancels)
+        // that task, the call fails instead of being cancelled.
+        workExecutor.execute(new FutureTask<Void>(call, null) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    call.dropped();
+                }
+            }
+        });
+        return call;
+    }
+
+    // a download that hands its result to the callback when it's done (unless it was cancelled)
+    private class Call<T> extends FutureTask<FetchResult<T>> {
+        private final String query;
+        private final Callback<T> callback;
+
+        Call(String query, Callable<FetchResult<T>> work, Callback<T> callback) {
+            super(work);
+            this.query = query;
+            this.callback = callback;
+        }
+
+        // the executor dropped the call before it ran (nothing happens if it's already done)
+        void dropped() {
+            set(FetchResult.<T>failed(new IOException("Cancelled before it started")));
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled() || callback == null) {
+                return;
+            }
+            final FetchResult<T> result;
+            try {
+                result = get();
+            } catch (InterruptedException | ExecutionException e) {
+                // a bug (downloads return their errors), don't let the executor swallow it
+                final Throwable cause = e.getCause() != null ? e.getCause() : e;
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        throw new RuntimeException(cause);
+                    }
+                });
+                return;
+            }
+            callbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!isCancelled()) {
+                        callback.onResult(query, result);
+                    }
+                }
+            });
+        }
+    }
+
+    // the Future of aggregate(), completed by the last worker instead of by running it
+    private static class Aggregation<A> extends FutureTask<A> {
+        private static final Runnable NOTHING = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+
+        private final Aggregator<A> aggregator;
+
+        Aggregation(Aggregator<A> aggregator) {
+            super(NOTHING, null);
+            this.aggregator = aggregator;
+        }
+
+        void add(String query, FetchResult<ForecastCache.Entry> result) {
+            synchronized (aggregator) {
+                aggregator.add(query, result);
+            }
+        }
+
+        void complete() {
+            try {
+                A value;
+                synchronized (aggregator) {
+                    value = aggregator.finish();
+                }
+                set(value);
+            } catch (RuntimeException e) {
+                setException(e);
+            }
+        }
+
+        void fail(RuntimeException e) {
+            setException(e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.lawrence.weather;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// What changed between the forecast on screen and a refreshed one, so only those rows are bound
+// again instead of the whole list (notifyDataSetChanged()).
+// Both lists are sorted by timestamp (ForecastCache keeps them that way), so one pass over
+// both finds the days that were removed, inserted or have new values.
+public class ForecastDiff {
+
+    // positions in the old list, highest first (so removing them one by one keeps the rest valid)
+    private final List<Integer> removed = new ArrayList<>();
+    // positions in the new list, lowest first
+    private final List<Integer> inserted = new ArrayList<>();
+    // positions in the new list of days that are in both lists, but with other values
+    private final List<Integer> changed = new ArrayList<>();
+
+    private ForecastDiff() {}
+
+    public static ForecastDiff compute(List<Weather> oldList, List<Weather> newList) {
+        ForecastDiff diff = new ForecastDiff();
+        int i = 0;
+        int j = 0;
+        while (i < oldList.size() && j < newList.size()) {
+            Weather before = oldList.get(i);
+            Weather after = newList.get(j);
+            if (before.getTimeStamp() == after.getTimeStamp()) {
+                if (!before.equals(after)) {
+                    diff.changed.add(j);
+                }
+                i++;
+                j++;
+            } else if (before.getTimeStamp() < after.getTimeStamp()) {
+                diff.removed.add(i++); // day is gone (it's in the past now)
+            } else {
+                diff.inserted.add(j++);
+            }
+        }
+        while (i < oldList.size()) {
+            diff.removed.add(i++);
+        }
+        while (j < newList.size()) {
+            diff.inserted.add(j++);
+        }
+
+        Collections.reverse(diff.removed);
+        return diff;
+    }
+
+    public List<Integer> getRemoved() {
+        return removed;
+    }
+
+    public List<Integer> getInserted() {
+        return inserted;
+    }
+
+    public List<Integer> getChanged() {
+        return changed;
+    }
+
+    // true if rows were added or removed, false if at most the contents of some rows changed
+    public boolean hasStructuralChanges() {
+        return !removed.isEmpty() || !inserted.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return !hasStructuralChanges() && changed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ForecastDiff[removed=" + removed + ", inserted=" + inserted + ", changed=" + changed + "]";
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.lawrence.weather;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+// Downloads a forecast and merges it into the ForecastCache.
+// If we already have a copy, the request is conditional (ETag/Last-Modified) and a
+// "304 Not Modified" answer just marks the cached copy as fresh again, without a body to
+// download or parse.
+// The time each step takes is recorded in Metrics.
+// This does network and disk I/O, so call it from a background thread.
+public class ForecastFetcher {
+
+    private final HttpClient httpClient;
+    private final ForecastCache cache;
+    private final Clock clock; // for the time the forecasts are saved with
+
+    public ForecastFetcher(HttpClient httpClient, ForecastCache cache) {
+        this(httpClient, cache, Clock.SYSTEM);
+    }
+
+    public ForecastFetcher(HttpClient httpClient, ForecastCache cache, Clock clock) {
+        this.httpClient = httpClient;
+        this.cache = cache;
+        this.clock = clock;
+    }
+
+    // like fetch(query, url), retried and behind the circuit breaker of caller. if the download
+    // fails the cached copy (if any) is returned instead, as a CACHED result.
+    public FetchResult<ForecastCache.Entry> fetch(final String query, final URL url, ResilientCaller caller) {
+        try {
+            return FetchResult.fresh(caller.call(new ResilientCaller.Attempt<ForecastCache.Entry>() {
+                @Override
+                public ForecastCache.Entry run() throws IOException {
+                    return fetch(query, url);
+                }
+            }));
+        } catch (IOException e) {
+            ForecastCache.Entry cached = cache.get(query);
+            return cached != null ? FetchResult.cached(cached, e) : FetchResult.<ForecastCache.Entry>failed(e);
+        }
+    }
+
+    // the saved forecast for query, or null if there is none. reads a file, so not on the main UI thread.
+    public ForecastCache.Entry getCached(String query) {
+        return cache.get(query);
+    }
+
+    // returns the up to date forecast for query (url is the API url created for it).
+    // throws an IOException if the server couldn't be reached or sent an error,
+    // or a JsonPullReader.MalformedJsonException if the response wasn't a forecast.
+    public ForecastCache.Entry fetch(String query, URL url) throws IOException {
+        ForecastCache.Entry cached = cache.get(query);
+
+        HttpClient.Response response = cached != null
+                ? httpClient.get(url, cached.getETag(), cached.getLastModified())
+                : httpClient.get(url);
+        try {
+            Metrics.CONNECT.record(response.getConnectNanos());
+            Metrics.FIRST_BYTE.record(response.getFirstByteNanos());
+
+            if (response.isNotModified() && cached != null) {
+                return cache.touch(cached, clock.currentTimeMillis());
+            }
+
+            if (!response.isOk()) {
+                throw new HttpClient.HttpException(response.getCode(),
+                        "HTTP " + response.getCode() + " for " + query);
+            }
+
+            // decode the JSON while it streams in
+            final String[] city = new String[1];
+            final List<Weather> forecast = new ArrayList<>();
+            long parseStart = System.nanoTime();
+            ForecastParser.parse(response.getReader(), new ForecastParser.Listener() {
+                @Override
+                public void onCity(String name, String country) {
+                    city[0] = name;
+                }
+
+                @Override
+                public void onWeather(Weather weather) {
+                    forecast.add(weather);
+                }
+            });
+
+            // the parser reads from the network as it goes, so take the waiting for data out of its time
+            long readNanos = response.getReadNanos();
+            Metrics.BODY_READ.record(readNanos);
+            Metrics.PARSE.record(System.nanoTime() - parseStart - readNanos);
+
+            long buildStart = System.nanoTime();
+            ForecastCache.Entry entry = cache.merge(query, city[0], forecast, clock.currentTimeMillis(),
+                    response.getETag(), response.getLastModified());
+            Metrics.MODEL_BUILD.recordSince(buildStart);
+            return entry;
+        } finally {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.lawrence.weather;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.example.lawrence.weather.ForecastCache.closeQuietly;
+import static com.example.lawrence.weather.ForecastCache.readForecast;
+import static com.example.lawrence.weather.ForecastCache.writeForecast;
+
+// Saves the hourly (3 hour) forecasts in pages of PAGE_SIZE entries, one small file per page,
+// so the list never needs the whole forecast in memory: PagedForecast keeps the pages around
+// the rows on screen and reads the others back from here when they scroll into view.
+// Pages are written while the response is still being parsed (Writer), the index with the
+// number of entries is written last, so a download that failed halfway never looks complete.
+// Every download writes its pages under a new generation (page_<page>.<generation>.bin) and only
+// the index says which generation is the saved forecast: the old pages stay until the new index
+// has replaced the old one (renamed into place, like ForecastCache), and a download that fails
+// deletes its own pages, so the forecast saved before it is still there.
+public class ForecastPageStore {
+
+    private static final Logger LOG = Logger.getLogger(ForecastPageStore.class.getName());
+
+    // one day of 3 hour entries
+    public static final int PAGE_SIZE = 8;
+
+    // bump this if the file layout changes, old files are then ignored
+    private static final int FORMAT_VERSION = 2;
+
+    // ascending across restarts too (unless there were more than 1000 downloads a second)
+    private static final AtomicLong GENERATIONS = new AtomicLong(System.currentTimeMillis());
+
+    private final File directory;
+    private final long ttlMillis;
+
+    // what is saved for one city: everything but the entries themselves
+    public static class Index {
+        private final String query;
+        private final String city;
+        private final long fetchedAt;
+        private final int count;
+
+        Index(String query, String city, long fetchedAt, int count) {
+            this.query = query;
+            this.city = city;
+            this.fetchedAt = fetchedAt;
+            this.count = count;
+        }
+
+        // normalized query the forecast was saved under
+        public String getQuery() {
+            return query;
+        }
+
+        public String getCity() {
+            return city;
+        }
+
+        public long getFetchedAt() {
+            return fetchedAt;
+        }
+
+        // number of entries in all the pages together
+        public int getCount() {
+            return count;
+        }
+
+        public int getPageCount() {
+            return (count + PAGE_SIZE - 1) / PAGE_SIZE;
+        }
+    }
+
+    public ForecastPageStore(File directory, long ttlMillis) {
+        this.directory = directory;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public boolean isStale(Index index, long now) {
+        return now - index.getFetchedAt() >= ttlMillis;
+    }
+
+    // returns the index of the saved forecast for the query, or null if there is none
+    public Index getIndex(String query) {
+        String key = ForecastCache.normalize(query);
+        File file = new File(directoryFor(key), "index.bin");
+        if (!file.exists()) {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != FORMAT_VERSION || !key.equals(in.readUTF())) {
+                return null; // old layout, or another query with the same hash
+            }
+            in.readLong(); // generation, readPage() finds the pages by their names
+            String city = ForecastCache.readString(in);
+            long fetchedAt = in.readLong();
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Corrupt index: " + count + " entries");
+            }
+            return new Index(key, city, fetchedAt, count);
+        } catch (IOException | RuntimeException e) {
+            // corrupt or truncated file, treat it as a cache miss
+            LOG.log(Level.WARNING, "Unable to read " + file, e);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    // read one page (disk I/O, don't call it on the main UI thread). that's the page of the
+    // newest generation that has it: the saved forecast, or a download that is still running.
+    public List<Weather> readPage(String query, int page) throws IOException {
+        String key = ForecastCache.normalize(query);
+        File dir = directoryFor(key);
+        long newest = -1;
+        String[] names = dir.list();
+        for (String name : names != null ? names : new String[0]) {
+            newest = Math.max(newest, generationOf(name, page));
+        }
+        if (newest < 0) {
+            throw new IOException("Page " + page + " of " + key + " isn't saved");
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(pageFile(dir, page, newest))));
+            if (in.readInt() != FORMAT_VERSION || !key.equals(in.readUTF())) {
+                throw new IOException("Page " + page + " of " + key + " is not readable");
+            }
+            return readForecast(in);
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    // start saving a new download for the query. the saved one stays until finish(), call
+    // abort() if the download fails.
+    public Writer begin(String query) throws IOException {
+        String key = ForecastCache.normalize(query);
+        File dir = directoryFor(key);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create " + dir);
+        }
+        return new Writer(key, dir, GENERATIONS.incrementAndGet());
+    }
+
+    // collects the entries of a download and writes every full page right away
+    public class Writer {
+        private final String key;
+        private final File dir;
+        private final long generation;
+        private List<Weather> page = new ArrayList<>(PAGE_SIZE);
+        private int pages;
+        private int count;
+
+        private Writer(String key, File dir, long generation) {
+            this.key = key;
+            this.dir = dir;
+            this.generation = generation;
+        }
+
+        // add the next entry. returns the page it completed (after saving it), or null
+        public List<Weather> add(Weather weather) throws IOException {
+            page.add(weather);
+            count++;
+            return page.size() == PAGE_SIZE ? flush() : null;
+        }
+
+        // save the last (partial) page and the index. returns that last page, or null if
+        // there was none. the index is returned by getIndex() from now on, and the pages of the
+        // forecast it replaced are deleted.
+        public List<Weather> finish(final String city, final long fetchedAt) throws IOException {
+            List<Weather> last = page.isEmpty() ? null : flush();
+
+            write(new File(dir, "index.bin"), new Content() {
+                @Override
+                public void writeTo(DataOutputStream out) throws IOException {
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeUTF(key);
+                    out.writeLong(generation);
+                    ForecastCache.writeString(out, city);
+                    out.writeLong(fetchedAt);
+                    out.writeInt(count);
+                }
+            });
+            deletePages(dir, generation, false);
+            return last;
+        }
+
+        // the download failed: delete the pages it saved, the forecast saved before stays
+        public void abort() {
+            deletePages(dir, generation, true);
+        }
+
+        // pages saved so far (the page add() or finish() returned is number getPagesWritten() - 1)
+        public int getPagesWritten() {
+            return pages;
+        }
+
+        private List<Weather> flush() throws IOException {
+            final List<Weather> full = page;
+            write(pageFile(dir, pages, generation), new Content() {
+                @Override
+                public void writeTo(DataOutputStream out) throws IOException {
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeUTF(key);
+                    writeForecast(out, full);
+                }
+            });
+            pages++;
+            page = new ArrayList<>(PAGE_SIZE);
+            return full;
+        }
+    }
+
+    private interface Content {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    // write to a temp file first and then rename it, like ForecastCache (with a temp file per
+    // thread, two downloads of the same query can be writing at once)
+    private static void write(File file, Content content) throws IOException {
+        File temp = ForecastCache.tempFileFor(file);
+        DataOutputStream out = null;
+        boolean written = false;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            content.writeTo(out);
+            out.close();
+            out = null;
+            written = true;
+        } finally {
+            closeQuietly(out);
+            if (!written) {
+                temp.delete();
+            }
+        }
+
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Unable to write " + file);
+        }
+    }
+
+    private File directoryFor(String key) {
+        return new File(directory, "hourly_" + Integer.toHexString(key.hashCode()));
+    }
+
+    private static File pageFile(File dir, int page, long generation) {
+        return new File(dir, "page_" + page + "." + generation + ".bin");
+    }
+
+    // the generation of a page file for page, -1 if name is another file
+    private static long generationOf(String name, int page) {
+        String prefix = "page_" + page + ".";
+        if (!name.startsWith(prefix) || !name.endsWith(".bin")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - ".bin".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // delete the pages of generation (only), or of the generations before it (and of old layouts).
+    // the pages of a newer download that's still running are left alone.
+    private static void deletePages(File dir, long generation, boolean only) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.startsWith("page_") || !name.endsWith(".bin")) {
+                continue; // the index, temp files
+            }
+            String[] parts = name.split("\\.");
+            long fileGeneration;
+            try {
+                fileGeneration = parts.length == 3 ? Long.parseLong(parts[1]) : -1;
+            } catch (NumberFormatException e) {
+                fileGeneration = -1;
+            }
+            if (only ? fileGeneration == generation : fileGeneration < generation) {
+                file.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.lawrence.weather;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Decodes an OpenWeatherMap forecast response straight from the HTTP stream.
+// Each entry of the "list" array is turned into a Weather object as soon as it has been read,
+// so we never hold the whole response as a String or a JSONObject tree.
+//
+// Handles both the daily endpoint (forecast/daily: "temp":{"min","max"} and "humidity")
+// and the 3 hour endpoint (forecast: "main":{"temp_min","temp_max","humidity"}).
+public class ForecastParser {
+
+    // receives the decoded data while the stream is being read
+    public interface Listener {
+        void onCity(String name, String country);
+        void onWeather(Weather weather);
+    }
+
+    private ForecastParser() {} // static methods only
+
+    // convenience method that collects all the Weather objects into a list
+    public static List<Weather> parse(Reader reader) throws IOException {
+        final List<Weather> forecast = new ArrayList<>();
+        parse(reader, new Listener() {
+            @Override
+            public void onCity(String name, String country) {}
+
+            @Override
+            public void onWeather(Weather weather) {
+                forecast.add(weather);
+            }
+        });
+        return forecast;
+    }
+
+    public static void parse(Reader reader, Listener listener) throws IOException {
+        JsonPullReader json = new JsonPullReader(reader);
+
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (name.equals("list")) {
+                // "list" is a JSONArray with 1 element per day (or per 3 hours)
+                json.beginArray();
+                while (json.hasNext()) {
+                    listener.onWeather(readWeather(json));
+                }
+                json.endArray();
+            } else if (name.equals("city")) {
+                readCity(json, listener);
+            } else {
+                json.skipValue(); // "cod", "message", "cnt", etc.
+            }
+        }
+        json.endObject();
+    }
+
+    private static void readCity(JsonPullReader json, Listener listener) throws IOException {
+        String cityName = null;
+        String country = null;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (name.equals("name")) {
+                cityName = json.nextString();
+            } else if (name.equals("country")) {
+                country = json.nextString();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+
+        listener.onCity(cityName, country);
+    }
+
+    // read a single element of "list"
+    private static Weather readWeather(JsonPullReader json) throws IOException {
+        long timeStamp = 0;
+        double minTemp = 0;
+        double maxTemp = 0;
+        double humidity = 0;
+        String description = null;
+        String icon = null;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (name.equals("dt")) {
+                timeStamp = json.nextLong(); // date/time timestamp
+            } else if (name.equals("temp") && json.peek() == JsonPullReader.Token.BEGIN_OBJECT) {
+                // daily forecast: "temp":{"day":..,"min":..,"max":..,...}
+                json.beginObject();
+                while (json.hasNext()) {
+                    String tempName = json.nextName();
+                    if (tempName.equals("min")) {
+                        minTemp = json.nextDouble();
+                    } else if (tempName.equals("max")) {
+                        maxTemp = json.nextDouble();
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endObject();
+            } else if (name.equals("main")) {
+                // 3 hour forecast: "main":{"temp":..,"temp_min":..,"temp_max":..,"humidity":..}
+                json.beginObject();
+                while (json.hasNext()) {
+                    String mainName = json.nextName();
+                    if (mainName.equals("temp_min")) {
+                        minTemp = json.nextDouble();
+                    } else if (mainName.equals("temp_max")) {
+                        maxTemp = json.nextDouble();
+                    } else if (mainName.equals("humidity")) {
+                        humidity = json.nextDouble();
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endObject();
+            } else if (name.equals("humidity")) {
+                humidity = json.nextDouble(); // percent humidity
+            } else if (name.equals("weather")) {
+                // "weather" is an array, but we only use the 1st condition
+                json.beginArray();
+                boolean first = true;
+                while (json.hasNext()) {
+                    if (!first) {
+                        json.skipValue();
+                        continue;
+                    }
+                    first = false;
+
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        String weatherName = json.nextName();
+                        if (weatherName.equals("description")) {
+                            description = json.nextString(); // weather conditions
+                        } else if (weatherName.equals("icon")) {
+                            icon = json.nextString(); // icon name
+                        } else {
+                            json.skipValue();
+                        }
+                    }
+                    json.endObject();
+                }
+                json.endArray();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+
+        return new Weather(timeStamp, minTemp, maxTemp, humidity, description, icon);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.lawrence.weather;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+// Aggregates the daily forecasts of many cities (ForecastClient.aggregate()) into one line per
+// day: how many cities have a forecast for it, the lowest low, the highest high and the mean of
+// the highs, in Fahrenheit. Also counts how many cities were fresh, came from the cache or failed,
+// and why. Only a few numbers per day are kept, not the forecasts, so the memory it takes doesn't
+// grow with the number of cities.
+public class ForecastSummary implements ForecastClient.Aggregator<ForecastSummary> {
+
+    // one day (UTC) over all the cities
+    public static class Day {
+        private final long epochDay;
+        private int cities;
+        private double minTemp = Double.POSITIVE_INFINITY;
+        private double maxTemp = Double.NEGATIVE_INFINITY;
+        private double maxTempSum;
+
+        Day(long epochDay) {
+            this.epochDay = epochDay;
+        }
+
+        void add(Weather weather) {
+            cities++;
+            minTemp = Math.min(minTemp, weather.getMinTempValue());
+            maxTemp = Math.max(maxTemp, weather.getMaxTempValue());
+            maxTempSum += weather.getMaxTempValue();
+        }
+
+        // days since 1970-01-01
+        public long getEpochDay() {
+            return epochDay;
+        }
+
+        public int getCities() {
+            return cities;
+        }
+
+        public double getMinTemp() {
+            return minTemp;
+        }
+
+        public double getMaxTemp() {
+            return maxTemp;
+        }
+
+        public double getMeanMaxTemp() {
+            return maxTempSum / cities;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "day %d: %d cities, low %.1f, high %.1f, mean high %.1f",
+                    epochDay, cities, minTemp, maxTemp, getMeanMaxTemp());
+        }
+    }
+
+    private final Map<Long, Day> days = new TreeMap<>();
+    private final Map<FetchResult.Status, Integer> statuses = new EnumMap<>(FetchResult.Status.class);
+    private final Map<FetchResult.Failure, Integer> failures = new EnumMap<>(FetchResult.Failure.class);
+
+    @Override
+    public void add(String query, FetchResult<ForecastCache.Entry> result) {
+        increment(statuses, result.getStatus());
+        if (result.getFailure() != FetchResult.Failure.NONE) {
+            increment(failures, result.getFailure());
+        }
+        if (result.getValue() == null) {
+            return;
+        }
+        for (Weather weather : result.getValue().getForecast()) {
+            long epochDay = TimeUnit.SECONDS.toDays(weather.getTimeStamp());
+            Day day = days.get(epochDay);
+            if (day == null) {
+                day = new Day(epochDay);
+                days.put(epochDay, day);
+            }
+            day.add(weather);
+        }
+    }
+
+    @Override
+    public ForecastSummary finish() {
+        return this;
+    }
+
+    // the days with at least one forecast, oldest first
+    public List<Day> getDays() {
+        return new ArrayList<>(days.values());
+    }
+
+    // how many cities ended up with the status
+    public int getCount(FetchResult.Status status) {
+        Integer count = statuses.get(status);
+        return count != null ? count : 0;
+    }
+
+    // how many downloads failed for the reason (the CACHED ones included)
+    public int getCount(FetchResult.Failure failure) {
+        Integer count = failures.get(failure);
+        return count != null ? count : 0;
+    }
+
+    private static <K> void increment(Map<K, Integer> counts, K key) {
+        Integer count = counts.get(key);
+        counts.put(key, count != null ? count + 1 : 1);
+    }
+
+    @Override
+    public String toString() {
+        return "ForecastSummary[" + statuses + ",failures=" + failures + ",days=" + days.size() + "]";
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.lawrence.weather;
+
+import java.net.URL;
+import java.net.URLEncoder;
+
+// Creates the API urls (endpoints to send GET requests to).
+// The app passes in the values from its APISettings (see MainActivity.createForecastUrls()),
+// tests point them at a local server.
+public class ForecastUrls {
+
+    private final String baseUrl;
+    private final String units;
+    private final String apiKey;
+
+    public ForecastUrls(String baseUrl, String units, String apiKey) {
+        this.baseUrl = baseUrl;
+        this.units = units;
+        this.apiKey = apiKey;
+    }
+
+    // url for the forecast of a city, or null if it couldn't be created
+    public URL forCity(String city) {
+        return create(baseUrl, units, city);
+    }
+
+    // url for the 3 hour forecast (5 days) of a city, or null if it couldn't be created.
+    // the same settings, but the "forecast" endpoint instead of "forecast/daily", and without
+    // the number of days (cnt=16 would cut the 3 hour forecast off after 2 days).
+    public URL hourlyForCity(String city) {
+        return create(hourly(baseUrl), withoutCount(units), city);
+    }
+
+    // url for the forecast of a city from the CityIndex. the API finds a city by id without
+    // guessing, and "London, GB" and "london" share the response.
+    public URL forCityId(int id) {
+        return create(byId(baseUrl), units, String.valueOf(id));
+    }
+
+    public URL hourlyForCityId(int id) {
+        return create(byId(hourly(baseUrl)), withoutCount(units), String.valueOf(id));
+    }
+
+    private static String hourly(String base) {
+        return base.replace("/forecast/daily", "/forecast");
+    }
+
+    private static String withoutCount(String units) {
+        return units.replaceAll("&cnt=\\d+", "");
+    }
+
+    // "...?q=" to "...?id="
+    private static String byId(String base) {
+        return base.replace("?q=", "?id=");
+    }
+
+    private URL create(String base, String units, String city) {
+        try {
+            // create URL for specified city and imperial units (Fahrenheit)
+            // urlString should resemble "http://api.openweathermap.org/data/2.5/forecast/daily?q=newyork&units=imperial&cnt=16&APPID=XXXXX"
+            // where XXXXX is your specific api key.
+            String urlString = base + URLEncoder.encode(city, "UTF-8") + units + apiKey;
+            return new URL(urlString);
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return null; // URL was malformed
+    }
+}
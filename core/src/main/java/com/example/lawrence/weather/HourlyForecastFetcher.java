@@ -0,0 +1,136 @@
+package com.example.lawrence.weather;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+
+// Downloads a 3 hour forecast into the ForecastPageStore, one page at a time.
+// Each page is handed to the listener as soon as it's parsed and saved, while the rest of the
+// response is still streaming in, so the list can show the first rows right away. The whole
+// forecast is never in memory at once.
+// This does network and disk I/O, so call it from a background thread.
+public class HourlyForecastFetcher {
+
+    // called on the fetching thread
+    public interface Listener {
+        void onCity(String city);
+
+        // page is the page number in the store, weathers its (at most PAGE_SIZE) entries
+        void onPage(int page, List<Weather> weathers);
+    }
+
+    private final HttpClient httpClient;
+    private final ForecastPageStore store;
+    private final Clock clock; // for the time the forecasts are saved with
+
+    public HourlyForecastFetcher(HttpClient httpClient, ForecastPageStore store, Clock clock) {
+        this.httpClient = httpClient;
+        this.store = store;
+        this.clock = clock;
+    }
+
+    // like fetch(query, url, listener), retried and behind the circuit breaker of caller. a
+    // download that fails after it has handed out pages isn't retried (the list already shows
+    // them). if it fails, the forecast saved earlier (if any) is returned as CACHED.
+    public FetchResult<ForecastPageStore.Index> fetch(final String query, final URL url, final Listener listener,
+                                                      ResilientCaller caller) {
+        final boolean[] gotPage = new boolean[1];
+        final Listener tracking = new Listener() {
+            @Override
+            public void onCity(String city) {
+                listener.onCity(city);
+            }
+
+            @Override
+            public void onPage(int page, List<Weather> weathers) {
+                gotPage[0] = true;
+                listener.onPage(page, weathers);
+            }
+        };
+        try {
+            return FetchResult.fresh(caller.call(new ResilientCaller.Attempt<ForecastPageStore.Index>() {
+                @Override
+                public ForecastPageStore.Index run() throws IOException {
+                    try {
+                        return fetch(query, url, tracking);
+                    } catch (IOException e) {
+                        throw gotPage[0] ? new ResilientCaller.NotRetryableException(e) : e;
+                    }
+                }
+            }));
+        } catch (IOException e) {
+            // a failed download leaves the saved forecast as it was (ForecastPageStore.Writer.abort())
+            ForecastPageStore.Index saved = store.getIndex(query);
+            return saved != null ? FetchResult.cached(saved, e) : FetchResult.<ForecastPageStore.Index>failed(e);
+        }
+    }
+
+    // returns the index of the downloaded forecast for query (url is the API url created for it).
+    // throws an IOException if the server couldn't be reached or sent an error,
+    // or a JsonPullReader.MalformedJsonException if the response wasn't a forecast.
+    public ForecastPageStore.Index fetch(String query, URL url, final Listener listener) throws IOException {
+        HttpClient.Response response = httpClient.get(url);
+        try {
+            Metrics.CONNECT.record(response.getConnectNanos());
+            Metrics.FIRST_BYTE.record(response.getFirstByteNanos());
+
+            if (!response.isOk()) {
+                throw new HttpClient.HttpException(response.getCode(),
+                        "HTTP " + response.getCode() + " for " + query);
+            }
+
+            final ForecastPageStore.Writer writer = store.begin(query);
+            boolean finished = false;
+            try {
+                List<Weather> last = save(response, writer, listener);
+                finished = true;
+                if (last != null) {
+                    listener.onPage(writer.getPagesWritten() - 1, last);
+                }
+            } finally {
+                if (!finished) {
+                    writer.abort();
+                }
+            }
+            return store.getIndex(query);
+        } finally {
+            response.close();
+        }
+    }
+
+    // parse the response into writer, handing out every full page. returns the last page.
+    private List<Weather> save(HttpClient.Response response, final ForecastPageStore.Writer writer,
+                               final Listener listener) throws IOException {
+        final String[] city = new String[1];
+        // the parser listener can't throw an IOException, keep the first one for later
+        final IOException[] failure = new IOException[1];
+        ForecastParser.parse(response.getReader(), new ForecastParser.Listener() {
+            @Override
+            public void onCity(String name, String country) {
+                city[0] = name;
+                listener.onCity(name);
+            }
+
+            @Override
+            public void onWeather(Weather weather) {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    List<Weather> page = writer.add(weather);
+                    if (page != null) {
+                        listener.onPage(writer.getPagesWritten() - 1, page);
+                    }
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        Metrics.BODY_READ.record(response.getReadNanos());
+
+        return writer.finish(city[0], clock.currentTimeMillis());
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.lawrence.weather;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.zip.GZIPInputStream;
+
+// Small wrapper around HttpURLConnection that is shared by the forecast and icon downloads.
+//  - keep-alive: HttpURLConnection keeps a pool of open sockets, but only reuses a socket if the
+//    response body was read to the end and closed. Calling disconnect() (what GetWeatherTask used
+//    to do) closes the socket, so the next request has to connect (DNS, TCP handshake) again.
+//  - gzip: we ask for a compressed response and unzip it ourselves. (Android does this
+//    automatically, but only if we don't set Accept-Encoding, and the desktop JVM never does.)
+//  - conditional GET: pass in the ETag/Last-Modified of the copy we already have and the server
+//    answers "304 Not Modified" with no body if it hasn't changed.
+//  - charset: the body is decoded with the charset from the Content-Type header, not the
+//    platform default.
+//  - timings: how long connecting, waiting for the response and reading the body took (see Metrics).
+//  - timeouts: HttpURLConnection waits forever by default, so a stalled server or a dead mobile
+//    connection tied up a download thread indefinitely. Connecting and every read from the
+//    socket (the response headers and each chunk of the body) have their own limit, and a
+//    SocketTimeoutException is thrown when one runs out.
+public class HttpClient {
+
+    // a handshake takes a few round trips, even on a slow mobile network
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10000;
+    // the longest silence between two packets of the response
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 15000;
+
+    private static final HttpClient sDefault = new HttpClient();
+
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+
+    public HttpClient() {
+        this(DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS);
+    }
+
+    public HttpClient(int connectTimeoutMillis, int readTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    // shared client for the whole app
+    public static HttpClient getDefault() {
+        return sDefault;
+    }
+
+    // send a GET request. etag/lastModified (null/0 if we don't have a copy) are sent as
+    // If-None-Match/If-Modified-Since. the caller must close() the Response.
+    public Response get(URL url, String etag, long lastModified) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis);
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        if (etag != null) {
+            connection.setRequestProperty("If-None-Match", etag);
+        }
+        if (lastModified > 0) {
+            connection.setIfModifiedSince(lastModified);
+        }
+
+        // connect() on its own, so the DNS lookup and handshake can be told apart from the server's
+        // response time (it returns right away when a kept-alive connection is reused)
+        long start = System.nanoTime();
+        long connected;
+        int code;
+        try {
+            connection.connect();
+            connected = System.nanoTime();
+            code = connection.getResponseCode();
+        } catch (IOException e) {
+            // no Response to close(): let go of the half open socket here, it can't be reused
+            connection.disconnect();
+            throw e;
+        }
+        long firstByte = System.nanoTime();
+
+        return new Response(connection, code, connected - start, firstByte - connected);
+    }
+
+    public Response get(URL url) throws IOException {
+        return get(url, null, 0);
+    }
+
+    // the server answered with an error status
+    public static class HttpException extends IOException {
+        private final int code;
+
+        public HttpException(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+    }
+
+    // a response from the server. close() it when done, so the connection can be reused.
+    public static class Response implements Closeable {
+        private final HttpURLConnection connection;
+        private final int code;
+        private final long connectNanos;
+        private final long firstByteNanos;
+        private CountingInputStream counter; // bytes that came over the network
+        private InputStream body;
+
+        Response(HttpURLConnection connection, int code, long connectNanos, long firstByteNanos) {
+            this.connection = connection;
+            this.code = code;
+            this.connectNanos = connectNanos;
+            this.firstByteNanos = firstByteNanos;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public boolean isOk() {
+            return code == HttpURLConnection.HTTP_OK;
+        }
+
+        // the copy we sent the ETag/Last-Modified for is still current
+        public boolean isNotModified() {
+            return code == HttpURLConnection.HTTP_NOT_MODIFIED;
+        }
+
+        public String getETag() {
+            return connection.getHeaderField("ETag");
+        }
+
+        public long getLastModified() {
+            return connection.getLastModified();
+        }
+
+        // the body of the response, unzipped if it's a 200 with a body (an error body as it came)
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                InputStream raw = isOk() ? connection.getInputStream() : connection.getErrorStream();
+                if (raw == null || isNotModified()) {
+                    raw = new ByteArrayInputStream(new byte[0]); // 304 has no body
+                }
+                counter = new CountingInputStream(raw);
+                body = new DrainOnCloseInputStream(isOk() && "gzip".equalsIgnoreCase(connection.getContentEncoding())
+                        ? gunzip(counter)
+                        : counter);
+            }
+            return body;
+        }
+
+        // servers say "gzip" on empty responses too, and an empty stream isn't gzip data
+        // (GZIPInputStream would throw EOFException, in read() and close())
+        private static InputStream gunzip(InputStream in) throws IOException {
+            PushbackInputStream pushback = new PushbackInputStream(in, 1);
+            int first = pushback.read();
+            if (first == -1) {
+                return pushback;
+            }
+            pushback.unread(first);
+            return new GZIPInputStream(pushback);
+        }
+
+        // the body decoded with the charset the server told us (UTF-8 if it didn't)
+        public Reader getReader() throws IOException {
+            return new InputStreamReader(getBody(), getCharset());
+        }
+
+        // bytes received for the body so far (compressed size if the server used gzip)
+        public long getBytesRead() {
+            return counter != null ? counter.count : 0;
+        }
+
+        // time to connect to the server (DNS, TCP and TLS handshakes), ~0 for a reused connection
+        public long getConnectNanos() {
+            return connectNanos;
+        }
+
+        // time from sending the request until the response headers arrived
+        public long getFirstByteNanos() {
+            return firstByteNanos;
+        }
+
+        // time spent in read() calls on the network stream so far
+        public long getReadNanos() {
+            return counter != null ? counter.nanos : 0;
+        }
+
+        String getCharset() {
+            String contentType = connection.getContentType();
+            if (contentType != null) {
+                for (String parameter : contentType.split(";")) {
+                    parameter = parameter.trim();
+                    if (parameter.regionMatches(true, 0, "charset=", 0, 8)) {
+                        return parameter.substring(8).replace("\"", "");
+                    }
+                }
+            }
+            return "UTF-8"; // JSON is UTF-8 by default
+        }
+
+        // close the body (if the caller hasn't already), so the connection can be reused
+        @Override
+        public void close() throws IOException {
+            getBody().close();
+        }
+    }
+
+    // reads whatever is left of the body before closing it, which gives the socket back to the
+    // connection pool (instead of disconnect(), which would close it). safe to close twice.
+    private static class DrainOnCloseInputStream extends FilterInputStream {
+        private boolean closed;
+
+        DrainOnCloseInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                byte[] buffer = new byte[1024];
+                while (in.read(buffer) != -1) {
+                    // drain
+                }
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    // counts the bytes and the time spent reading them
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+        long nanos;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = super.read();
+            nanos += System.nanoTime() - start;
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            int n = super.read(buffer, offset, length);
+            nanos += System.nanoTime() - start;
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
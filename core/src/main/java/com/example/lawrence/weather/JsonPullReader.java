@@ -0,0 +1,470 @@
+package com.example.lawrence.weather;
+
+import java.io.IOException;
+import java.io.Reader;
+
+// A small "pull" style JSON reader.
+// Instead of reading the whole HTTP response into a String and building a JSONObject tree
+// (which keeps 2-3 copies of the data in memory), we read tokens one at a time straight from
+// the input stream and the caller decides what to keep and what to skip.
+// The API is modeled on android.util.JsonReader, but this class is plain Java so that it can
+// also be used (and benchmarked) in the JVM unit tests.
+public class JsonPullReader {
+
+    // kinds of tokens returned by peek()
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY,
+        NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    // what the reader is currently inside of (stack of nested objects/arrays)
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int DANGLING_NAME = 6; // read a name, waiting for its value
+
+    // largest power of ten that a double can hold exactly (used by the number fast path)
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Reader in;
+
+    // read the input in chunks rather than one char at a time
+    private final char[] buffer = new char[1024];
+    private int pos = 0;
+    private int limit = 0;
+
+    private int[] stack = new int[32];
+    private int depth = 0;
+
+    // token found by peek() but not consumed yet (null if we haven't peeked)
+    private Token peeked = null;
+
+    // reused for every string/number so we don't allocate a new builder per value
+    private final StringBuilder scratch = new StringBuilder();
+
+    public JsonPullReader(Reader in) {
+        this.in = in;
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+        peeked = null;
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+        peeked = null;
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+        peeked = null;
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+        peeked = null;
+    }
+
+    // true if the current object/array has another element
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        peeked = null;
+        return readString();
+    }
+
+    public String nextString() throws IOException {
+        Token token = peek();
+        peeked = null;
+        if (token == Token.STRING) {
+            return readString();
+        } else if (token == Token.NUMBER) {
+            return readNumberLiteral();
+        }
+        throw syntaxError("Expected a string but was " + token);
+    }
+
+    public double nextDouble() throws IOException {
+        Token token = peek();
+        peeked = null;
+        if (token == Token.NUMBER) {
+            return readDouble();
+        } else if (token == Token.STRING) {
+            // OpenWeatherMap sometimes quotes numbers (e.g. "cod":"200")
+            String value = readString();
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw syntaxError("Expected a number but was \"" + value + "\"");
+            }
+        }
+        throw syntaxError("Expected a number but was " + token);
+    }
+
+    public long nextLong() throws IOException {
+        double value = nextDouble();
+        long result = (long) value;
+        if (result != value) {
+            throw syntaxError("Expected a long but was " + value);
+        }
+        return result;
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        peeked = null;
+        // the first letter was already consumed by peek()
+        if (buffer[pos - 1] == 't') {
+            readLiteral("rue");
+            return true;
+        }
+        readLiteral("alse");
+        return false;
+    }
+
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+        peeked = null;
+        readLiteral("ull");
+    }
+
+    // skip the next value, including all of its nested objects/arrays
+    public void skipValue() throws IOException {
+        int count = 0;
+        do {
+            Token token = peek();
+            switch (token) {
+                case BEGIN_ARRAY:
+                    beginArray();
+                    count++;
+                    break;
+                case BEGIN_OBJECT:
+                    beginObject();
+                    count++;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    count--;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    count--;
+                    break;
+                case NAME:
+                case STRING:
+                    peeked = null;
+                    skipString();
+                    break;
+                case NUMBER:
+                    peeked = null;
+                    skipNumber();
+                    break;
+                case BOOLEAN:
+                    nextBoolean();
+                    break;
+                case NULL:
+                    nextNull();
+                    break;
+                default:
+                    throw syntaxError("Unexpected " + token);
+            }
+        } while (count != 0);
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // look at the next token without consuming it
+    public Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+
+        int scope = stack[depth - 1];
+        int c;
+        if (scope == EMPTY_ARRAY) {
+            stack[depth - 1] = NONEMPTY_ARRAY;
+            c = nextNonWhitespace();
+            if (c == ']') {
+                return peeked = Token.END_ARRAY;
+            } else if (c != -1) {
+                pos--; // not the end, so push the char back and read it as a value
+            }
+        } else if (scope == NONEMPTY_ARRAY) {
+            c = nextNonWhitespace();
+            if (c == ']') {
+                return peeked = Token.END_ARRAY;
+            } else if (c != ',') {
+                throw syntaxError("Unterminated array");
+            }
+        } else if (scope == EMPTY_OBJECT || scope == NONEMPTY_OBJECT) {
+            stack[depth - 1] = DANGLING_NAME;
+            c = nextNonWhitespace();
+            if (scope == NONEMPTY_OBJECT) {
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                } else if (c != ',') {
+                    throw syntaxError("Unterminated object");
+                }
+                c = nextNonWhitespace();
+            } else if (c == '}') {
+                return peeked = Token.END_OBJECT;
+            }
+            if (c != '"') {
+                throw syntaxError("Expected name");
+            }
+            return peeked = Token.NAME;
+        } else if (scope == DANGLING_NAME) {
+            stack[depth - 1] = NONEMPTY_OBJECT;
+            if (nextNonWhitespace() != ':') {
+                throw syntaxError("Expected ':'");
+            }
+        } else if (scope == EMPTY_DOCUMENT) {
+            stack[depth - 1] = NONEMPTY_DOCUMENT;
+        } else if (scope == NONEMPTY_DOCUMENT) {
+            if (nextNonWhitespace() == -1) {
+                return peeked = Token.END_DOCUMENT;
+            }
+            throw syntaxError("Expected end of document");
+        }
+
+        c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                return peeked = Token.BEGIN_OBJECT;
+            case '[':
+                return peeked = Token.BEGIN_ARRAY;
+            case '"':
+                return peeked = Token.STRING;
+            case 't':
+            case 'f':
+                return peeked = Token.BOOLEAN;
+            case 'n':
+                return peeked = Token.NULL;
+            case -1:
+                throw syntaxError("Unexpected end of input");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    pos--; // numbers are read from their first char
+                    return peeked = Token.NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private void expect(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            int[] newStack = new int[depth * 2];
+            System.arraycopy(stack, 0, newStack, 0, depth);
+            stack = newStack;
+        }
+        stack[depth++] = scope;
+    }
+
+    // returns the next char or -1 at the end of input
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++];
+    }
+
+    private boolean fill() throws IOException {
+        int count = in.read(buffer, 0, buffer.length);
+        if (count <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = count;
+        return true;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        return c;
+    }
+
+    // read a string whose opening quote was already consumed
+    private String readString() throws IOException {
+        scratch.setLength(0);
+        while (true) {
+            // copy runs of plain chars in one go
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                pos++;
+            }
+            scratch.append(buffer, start, pos - start);
+
+            int c = read();
+            if (c == '"') {
+                return scratch.toString();
+            } else if (c == '\\') {
+                scratch.append(readEscape());
+            } else if (c == -1) {
+                throw syntaxError("Unterminated string");
+            } else {
+                pos--; // buffer was refilled, keep scanning
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                readEscape();
+            } else if (c == -1) {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Malformed unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            case -1:
+                throw syntaxError("Unterminated escape sequence");
+            default:
+                return (char) c; // \" \\ \/
+        }
+    }
+
+    private void readLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw syntaxError("Malformed literal");
+            }
+        }
+    }
+
+    // copy the chars of a number into scratch and return how many there were
+    private int scanNumber() throws IOException {
+        scratch.setLength(0);
+        while (true) {
+            int c = read();
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                scratch.append((char) c);
+            } else {
+                if (c != -1) {
+                    pos--;
+                }
+                return scratch.length();
+            }
+        }
+    }
+
+    private String readNumberLiteral() throws IOException {
+        scanNumber();
+        return scratch.toString();
+    }
+
+    private void skipNumber() throws IOException {
+        scanNumber();
+    }
+
+    // parse the number without creating a String for the common "123" and "12.34" cases.
+    // anything fancier (exponents, lots of digits) falls back to Double.parseDouble()
+    private double readDouble() throws IOException {
+        int length = scanNumber();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && scratch.charAt(0) == '-') {
+            negative = true;
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean seenDot = false;
+        for (; i < length; i++) {
+            char c = scratch.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (seenDot) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                break; // exponent or something unexpected
+            }
+        }
+
+        if (i != length || digits == 0 || digits > 15 || fractionDigits >= POWERS_OF_TEN.length) {
+            try {
+                return Double.parseDouble(scratch.toString());
+            } catch (NumberFormatException e) {
+                throw syntaxError("Malformed number " + scratch);
+            }
+        }
+
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private IOException syntaxError(String message) {
+        return new MalformedJsonException(message + " in JSON data");
+    }
+
+    // thrown when the data isn't valid JSON (as opposed to a network problem while reading it)
+    public static class MalformedJsonException extends IOException {
+        public MalformedJsonException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.lawrence.weather;
+
+import java.util.concurrent.Executor;
+
+// Runs one task at a time and keeps at most one waiting: a new task replaces the one that
+// hasn't started yet. For work where only the newest request matters, like WeatherAdapter's
+// diffs (the result of an older one would be thrown away anyway).
+// Unlike a pool with a bounded queue it never rejects a task, so execute() is safe to call
+// from the main UI thread as often as new data arrives.
+public class LatestOnlyExecutor implements Executor {
+
+    private final Executor executor;
+    private final Object lock = new Object();
+
+    // guarded by lock
+    private Runnable waiting;
+    private boolean draining;
+
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                Runnable next;
+                synchronized (lock) {
+                    next = waiting;
+                    waiting = null;
+                    if (next == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                boolean ran = false;
+                try {
+                    next.run();
+                    ran = true;
+                } finally {
+                    if (!ran) {
+                        restart(); // the task threw, a waiting one still has to run
+                    }
+                }
+            }
+        }
+    };
+
+    // the tasks run on executor, one at a time: it's never given more than one task to queue
+    public LatestOnlyExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        synchronized (lock) {
+            waiting = task;
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        executor.execute(drain);
+    }
+
+    private void restart() {
+        synchronized (lock) {
+            if (waiting == null) {
+                draining = false;
+                return;
+            }
+        }
+        executor.execute(drain);
+    }
+}
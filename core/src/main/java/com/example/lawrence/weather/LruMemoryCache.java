@@ -0,0 +1,111 @@
+package com.example.lawrence.weather;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// A thread safe, size bounded "least recently used" cache.
+// A LinkedHashMap in access order keeps the least recently used entry first, so when the
+// cache grows past maxSize we drop entries from the front until it fits again.
+// Subclasses override sizeOf() to measure entries in something other than "1 per entry"
+// (e.g. bytes of a Bitmap).
+//
+// This is plain Java (unlike android.util.LruCache) so it can be unit tested and benchmarked on the JVM.
+public class LruMemoryCache<K, V> {
+
+    private final LinkedHashMap<K, V> map;
+    private final int maxSize;
+    private int size;
+
+    // counters to check how well the cache works
+    private int hitCount;
+    private int missCount;
+    private int evictionCount;
+
+    public LruMemoryCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.maxSize = maxSize;
+        this.map = new LinkedHashMap<>(16, 0.75f, true); // true = access order
+    }
+
+    public synchronized V get(K key) {
+        V value = map.get(key);
+        if (value != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return value;
+    }
+
+    public synchronized V put(K key, V value) {
+        size += sizeOf(key, value);
+        V previous = map.put(key, value);
+        if (previous != null) {
+            size -= sizeOf(key, previous);
+        }
+        trimToSize(maxSize);
+        return previous;
+    }
+
+    public synchronized V remove(K key) {
+        V previous = map.remove(key);
+        if (previous != null) {
+            size -= sizeOf(key, previous);
+        }
+        return previous;
+    }
+
+    public synchronized void evictAll() {
+        trimToSize(-1);
+    }
+
+    // size of a single entry, in the same units as maxSize
+    protected int sizeOf(K key, V value) {
+        return 1;
+    }
+
+    // called (while holding the lock) when an entry is dropped to make room
+    protected void entryEvicted(K key, V value) {}
+
+    private void trimToSize(int targetSize) {
+        Iterator<Map.Entry<K, V>> iterator = map.entrySet().iterator();
+        while (size > targetSize && iterator.hasNext()) {
+            Map.Entry<K, V> eldest = iterator.next();
+            iterator.remove();
+            size -= sizeOf(eldest.getKey(), eldest.getValue());
+            evictionCount++;
+            entryEvicted(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public synchronized int hitCount() {
+        return hitCount;
+    }
+
+    public synchronized int missCount() {
+        return missCount;
+    }
+
+    public synchronized int evictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        int accesses = hitCount + missCount;
+        int hitPercent = accesses != 0 ? (100 * hitCount / accesses) : 0;
+        return String.format("LruMemoryCache[size=%d,maxSize=%d,hits=%d,misses=%d,evictions=%d,hitRate=%d%%]",
+                size, maxSize, hitCount, missCount, evictionCount, hitPercent);
+    }
+}
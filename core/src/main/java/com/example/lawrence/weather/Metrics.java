@@ -0,0 +1,158 @@
+package com.example.lawrence.weather;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Timings of the steps of a forecast request and of the list, to find where slow devices lose time.
+// Every step has a Histogram with power of two buckets (<1us, 1-2us, 2-4us, ... microseconds),
+// so recording a sample is a few atomic increments: no locks, no allocation, cheap enough to
+// leave on in release builds. Nothing is logged while recording; dump() writes a summary when
+// asked for it:
+//     adb shell dumpsys activity com.example.lawrence.weather/.MainActivity
+//
+// Forecast request:
+//   CONNECT       DNS lookup + TCP (+TLS) connect, close to 0 when a kept-alive connection is reused
+//   FIRST_BYTE    request sent until the response headers arrived (time to first byte)
+//   RETRY_WAIT    waiting before a failed request is sent again (ResilientCaller)
+//   BODY_READ     time spent waiting for / reading the body from the network
+//   PARSE         decoding the JSON (ForecastParser, without the time spent reading the network)
+//   MODEL_BUILD   turning the parsed days into the ForecastCache.Entry the list shows (saved to disk)
+//   ADAPTER_NOTIFY  replacing the list contents and notifyDataSetChanged()
+// List:
+//   ICON_LOAD     loading an icon that wasn't in memory (disk or network + decode), on a worker thread
+//   BIND          one onBindViewHolder() call
+public final class Metrics {
+
+    public static final Histogram CONNECT = new Histogram("connect");
+    public static final Histogram FIRST_BYTE = new Histogram("first byte");
+    public static final Histogram RETRY_WAIT = new Histogram("retry wait");
+    public static final Histogram BODY_READ = new Histogram("body read");
+    public static final Histogram PARSE = new Histogram("parse");
+    public static final Histogram MODEL_BUILD = new Histogram("model build");
+    public static final Histogram ADAPTER_NOTIFY = new Histogram("adapter notify");
+    public static final Histogram ICON_LOAD = new Histogram("icon load");
+    public static final Histogram BIND = new Histogram("bind");
+
+    private static final Histogram[] ALL = {
+            CONNECT, FIRST_BYTE, RETRY_WAIT, BODY_READ, PARSE, MODEL_BUILD, ADAPTER_NOTIFY, ICON_LOAD,
+            BIND
+    };
+
+    private Metrics() {} // static fields only
+
+    // write all the histograms, one line each
+    public static void dump(PrintWriter writer) {
+        for (Histogram histogram : ALL) {
+            writer.println(histogram);
+        }
+    }
+
+    public static void reset() {
+        for (Histogram histogram : ALL) {
+            histogram.reset();
+        }
+    }
+
+    // durations of one step. safe to record from any thread.
+    public static class Histogram {
+        // bucket 0 is < 1us, bucket i is [2^(i-1), 2^i) us, the last one is everything above
+        static final int BUCKETS = 32;
+
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        public Histogram(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // record the time since startNanos (a System.nanoTime() value)
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            buckets.incrementAndGet(bucketOf(nanos));
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                // another thread raised the max in the meantime, try again
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getMeanNanos() {
+            long n = count.get();
+            return n == 0 ? 0 : totalNanos.get() / n;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        // upper bound of the bucket the given percentile (0-100) falls in, in nanoseconds
+        public long getPercentileNanos(double percentile) {
+            long n = count.get();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(n * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; ++i) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperBoundNanos(i), getMaxNanos());
+                }
+            }
+            return getMaxNanos();
+        }
+
+        public void reset() {
+            for (int i = 0; i < BUCKETS; ++i) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            totalNanos.set(0);
+            maxNanos.set(0);
+        }
+
+        static int bucketOf(long nanos) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            // number of bits needed for micros: 0 -> 0, 1 -> 1, 2..3 -> 2, 4..7 -> 3, ...
+            int bucket = 64 - Long.numberOfLeadingZeros(micros);
+            return Math.min(bucket, BUCKETS - 1);
+        }
+
+        static long upperBoundNanos(int bucket) {
+            return TimeUnit.MICROSECONDS.toNanos(1L << bucket);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-15s n=%d mean=%s p50=%s p90=%s p99=%s max=%s",
+                    name + ":", getCount(), millis(getMeanNanos()), millis(getPercentileNanos(50)),
+                    millis(getPercentileNanos(90)), millis(getPercentileNanos(99)), millis(getMaxNanos()));
+        }
+
+        private static String millis(long nanos) {
+            return String.format(Locale.US, "%.2fms", nanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.lawrence.weather;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Thread pools for network work.
+// AsyncTask.execute() runs every task of the app one at a time on a single global thread
+// (since API 11), so a slow forecast download held up every icon behind it, and the other
+// way around. Forecasts and icons now get their own small pools, so they can't block each other:
+//     task.executeOnExecutor(NetworkExecutors.FORECAST, url);
+//
+// Each pool has a bounded queue. When it's full the OLDEST waiting task is cancelled to make room
+// (back-pressure): for icons the oldest requests are for rows that have most likely scrolled
+// off the screen already, and for forecasts the newest query is the one the user is waiting for.
+// Cancelled AsyncTasks get onCancelled() instead of onPostExecute(), so they can clean up.
+public final class NetworkExecutors {
+
+    // forecast downloads: the user looks at one city at a time, but refreshing the saved
+    // cities (BatchForecastFetcher) runs a few in parallel
+    public static final ThreadPoolExecutor FORECAST = newPool("forecast", 4, 16);
+
+    // icon downloads: small files, a few in parallel fills a screen quickly
+    public static final ThreadPoolExecutor ICONS = newPool("icon", 3, 32);
+
+    private NetworkExecutors() {} // static fields only
+
+    static ThreadPoolExecutor newPool(final String name, int threads, int queueSize) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads,
+                30, TimeUnit.SECONDS, // idle threads go away after 30 seconds
+                new LinkedBlockingQueue<Runnable>(queueSize),
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger(1);
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, name + " #" + count.getAndIncrement());
+                        // keep network threads below the main UI thread
+                        thread.setPriority(Thread.NORM_PRIORITY - 1);
+                        return thread;
+                    }
+                },
+                new CancelOldestPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // like ThreadPoolExecutor.DiscardOldestPolicy, but cancels the dropped task so its owner finds
+    // out (AsyncTask hands the executor a FutureTask, cancelling it calls the task's onCancelled(),
+    // a cancelled FanOut worker counts its cities as failed). Only a Future can be told, so a plain
+    // Runnable is never dropped: the oldest waiting Future goes instead, and if there isn't one the
+    // new task is cancelled, or rejected with an exception if it's a plain Runnable too.
+    static class CancelOldestPolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                cancel(runnable);
+                return;
+            }
+
+            BlockingQueue<Runnable> queue = executor.getQueue();
+            for (Runnable waiting : queue) {
+                if (waiting instanceof Future && queue.remove(waiting)) {
+                    ((Future<?>) waiting).cancel(false);
+                    executor.execute(runnable);
+                    return;
+                }
+            }
+            if (!cancel(runnable)) {
+                throw new RejectedExecutionException("Queue full of tasks that can't be cancelled");
+            }
+        }
+
+        private static boolean cancel(Runnable runnable) {
+            if (runnable instanceof Future) {
+                ((Future<?>) runnable).cancel(false);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.lawrence.weather;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// The rows of an hourly forecast as the list sees them: a count, and pages of entries.
+// Only the pages that were used last are kept in memory (at most maxPages, the others are
+// evicted like in LruMemoryCache), so memory stays the same however far the user scrolls.
+// A row whose page isn't in memory is shown empty, and the PageLoader is asked (once) to read
+// the page back from the ForecastPageStore; the rows are bound again when it arrives.
+// Used on the main UI thread only.
+public class PagedForecast {
+
+    public interface PageLoader {
+        // load the page in the background and hand it to onPageLoaded() on the main UI thread,
+        // or call onPageFailed() if it couldn't be read
+        void load(int page);
+    }
+
+    private final int pageSize;
+    private final LruMemoryCache<Integer, List<Weather>> pages;
+    private final PageLoader loader;
+
+    // pages asked from the loader that haven't arrived yet
+    private final Set<Integer> loading = new HashSet<>();
+
+    private int count;
+
+    public PagedForecast(int pageSize, int maxPages, PageLoader loader) {
+        this.pageSize = pageSize;
+        this.pages = new LruMemoryCache<>(maxPages);
+        this.loader = loader;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    // number of rows, including the ones whose page isn't in memory
+    public int size() {
+        return count;
+    }
+
+    // the saved forecast has count entries (none of them in memory yet)
+    public void reset(int count) {
+        pages.evictAll();
+        loading.clear();
+        this.count = count;
+    }
+
+    // the weather at position, or null if its page is still loading
+    public Weather get(int position) {
+        int page = position / pageSize;
+        List<Weather> weathers = pages.get(page);
+        if (weathers == null) {
+            if (loading.add(page)) {
+                loader.load(page);
+            }
+            return null;
+        }
+        int offset = position % pageSize;
+        return offset < weathers.size() ? weathers.get(offset) : null;
+    }
+
+    // a page read back by the loader
+    public void onPageLoaded(int page, List<Weather> weathers) {
+        if (loading.remove(page)) {
+            pages.put(page, weathers);
+        }
+    }
+
+    // the loader couldn't read the page: its rows stay empty, and the next get() asks again
+    public void onPageFailed(int page) {
+        loading.remove(page);
+    }
+
+    // a new page of a download, the forecast grows to include it.
+    // returns the number of rows that were added.
+    public int append(int page, List<Weather> weathers) {
+        loading.remove(page);
+        pages.put(page, weathers);
+
+        int before = count;
+        count = Math.max(count, page * pageSize + weathers.size());
+        return count - before;
+    }
+
+    // a download ended up with fewer entries than the forecast it replaced.
+    // the pages past the new end are dropped.
+    public void truncate(int count) {
+        if (count >= this.count) {
+            return;
+        }
+        int lastPage = (this.count - 1) / pageSize;
+        for (int page = (count + pageSize - 1) / pageSize; page <= lastPage; ++page) {
+            pages.remove(page);
+            loading.remove(page);
+        }
+        this.count = count;
+    }
+
+    // pages in memory right now (never more than maxPages)
+    public int getPagesInMemory() {
+        return pages.size();
+    }
+
+    // the first position of the page
+    public int positionOf(int page) {
+        return page * pageSize;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.lawrence.weather;
+
+import java.util.concurrent.TimeUnit;
+
+// Decides when the background prefetch (PrefetchService) may use the network, and which cities
+// it should refresh. Plain Java with an injectable Clock, so it can be tested without Android.
+//  - conditions: only on an unmetered network, and not while the battery is low (unless charging)
+//  - backoff: after a run where nothing could be downloaded, wait 15 min, 30 min, 1 h, ...
+//    (up to MAX_BACKOFF) before trying again, instead of waking the radio every time
+//  - batching: every city that is worth refreshing is refreshed in the same run, so the radio
+//    wakes up once for all of them. cities downloaded in the last MIN_AGE are skipped.
+public class PrefetchPolicy {
+
+    // how often the alarm fires (inexact, the system lines it up with other wake-ups)
+    static final long INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    // don't run again this soon after a successful run (e.g. the app was opened and rescheduled)
+    static final long MIN_GAP = TimeUnit.MINUTES.toMillis(15);
+
+    // cities downloaded more recently than this aren't refreshed
+    static final long MIN_AGE = TimeUnit.MINUTES.toMillis(15);
+
+    static final long FIRST_BACKOFF = TimeUnit.MINUTES.toMillis(15);
+    static final long MAX_BACKOFF = TimeUnit.HOURS.toMillis(12);
+
+    private final Clock clock;
+    private int consecutiveFailures;
+    private long nextRunAt;
+
+    // state of the previous runs (stored by the caller between runs)
+    public PrefetchPolicy(Clock clock, int consecutiveFailures, long nextRunAt) {
+        this.clock = clock;
+        this.consecutiveFailures = consecutiveFailures;
+        this.nextRunAt = nextRunAt;
+    }
+
+    // false while we are backing off (or just ran)
+    public boolean isDue() {
+        return clock.currentTimeMillis() >= nextRunAt;
+    }
+
+    // is this a good moment to use the network in the background?
+    public boolean canRun(boolean connected, boolean metered, boolean batteryLow, boolean charging) {
+        return connected && !metered && (!batteryLow || charging);
+    }
+
+    // does this city need a download? (entry is null if it isn't cached at all)
+    public boolean isWorthRefreshing(ForecastCache.Entry entry) {
+        return entry == null || clock.currentTimeMillis() - entry.getFetchedAt() >= MIN_AGE;
+    }
+
+    // at least one city was downloaded (or there was nothing to do)
+    public void onSuccess() {
+        consecutiveFailures = 0;
+        nextRunAt = clock.currentTimeMillis() + MIN_GAP;
+    }
+
+    // nothing could be downloaded, wait longer before each new try
+    public void onFailure() {
+        consecutiveFailures++;
+        long backoff = FIRST_BACKOFF << Math.min(consecutiveFailures - 1, 20);
+        nextRunAt = clock.currentTimeMillis() + Math.min(backoff, MAX_BACKOFF);
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public long getNextRunAt() {
+        return nextRunAt;
+    }
+}
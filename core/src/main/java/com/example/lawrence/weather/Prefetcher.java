@@ -0,0 +1,135 @@
+package com.example.lawrence.weather;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// One background prefetch run: downloads the forecasts of the given cities into the ForecastCache
+// (all in one burst, a few in parallel), so they're fresh when the user opens the app.
+// Cities that were downloaded recently (see PrefetchPolicy.isWorthRefreshing()) are skipped.
+// The downloads share the app's ResilientCaller: a city whose download failed (even if the saved
+// copy is still there) counts as failed, and while the circuit breaker is open they all fail fast.
+// run() blocks until all downloads are done, call it from a background thread. A run that takes
+// longer than its timeout is cancelled, and the cities that weren't done count as failed.
+public class Prefetcher {
+
+    private static final Logger LOG = Logger.getLogger(Prefetcher.class.getName());
+
+    // a run with a few cities takes seconds, even with retries. this is for a wedged one.
+    static final long DEFAULT_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
+    // what a run did
+    public static class Result {
+        int refreshed;
+        int skipped;
+        int failed;
+
+        public int getRefreshed() {
+            return refreshed;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        // true if nothing could be downloaded (e.g. no connection), the policy should back off
+        public boolean isFailure() {
+            return failed > 0 && refreshed == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "refreshed=" + refreshed + ", skipped=" + skipped + ", failed=" + failed;
+        }
+    }
+
+    // deliver the results on the worker threads, there is no UI to update
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    private final ForecastCache cache;
+    private final BatchForecastFetcher batchFetcher;
+    private final long timeoutMillis;
+
+    public Prefetcher(ForecastFetcher fetcher, ForecastCache cache, ForecastUrls urls, ResilientCaller caller,
+                      Executor executor, int maxParallel) {
+        this(fetcher, cache, urls, caller, executor, maxParallel, DEFAULT_TIMEOUT);
+    }
+
+    Prefetcher(ForecastFetcher fetcher, ForecastCache cache, ForecastUrls urls, ResilientCaller caller,
+               Executor executor, int maxParallel, long timeoutMillis) {
+        this.cache = cache;
+        this.batchFetcher = new BatchForecastFetcher(fetcher, urls, caller, executor, DIRECT, maxParallel);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public Result run(List<String> queries, PrefetchPolicy policy) throws InterruptedException {
+        final Result result = new Result();
+
+        List<String> stale = new ArrayList<>();
+        for (String query : queries) {
+            if (policy.isWorthRefreshing(cache.get(query))) {
+                stale.add(query);
+            } else {
+                result.skipped++;
+            }
+        }
+
+        // the cities still downloading, guarded by result. a result that comes in after the run
+        // timed out isn't counted again.
+        final List<String> pending = new ArrayList<>(stale);
+        final CountDownLatch done = new CountDownLatch(1);
+        BatchForecastFetcher.Batch batch = batchFetcher.fetchAll(stale, new BatchForecastFetcher.Listener() {
+            @Override
+            public void onCityResult(String query, FetchResult<ForecastCache.Entry> fetched) {
+                synchronized (result) {
+                    if (!pending.remove(query)) {
+                        return;
+                    }
+                    if (fetched.getStatus() == FetchResult.Status.FRESH) {
+                        result.refreshed++;
+                    } else {
+                        result.failed++;
+                    }
+                }
+            }
+
+            @Override
+            public void onFinished() {
+                done.countDown();
+            }
+        });
+        boolean finished;
+        try {
+            finished = done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            batch.cancel();
+            throw e;
+        }
+        if (!finished) {
+            // no more requests or results for this run. the ones already running time out on
+            // their own (HttpClient has timeouts), their forecasts still end up in the cache.
+            batch.cancel();
+            synchronized (result) {
+                LOG.warning("Prefetch timed out after " + timeoutMillis + " ms, not done: " + pending);
+                result.failed += pending.size();
+                pending.clear();
+            }
+        }
+
+        synchronized (result) {
+            return result;
+        }
+    }
+}
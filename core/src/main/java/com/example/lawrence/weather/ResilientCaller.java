@@ -0,0 +1,90 @@
+package com.example.lawrence.weather;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+// Runs a download with retries (RetryPolicy) behind a CircuitBreaker.
+// A failure that may go away is retried after a short, random wait; while the server keeps
+// failing the breaker is open and call() throws a CircuitBreaker.OpenException right away, so
+// the caller can fall back to its cached copy without waiting for timeouts first.
+// call() blocks (it sleeps between attempts), so call it from a background thread.
+public class ResilientCaller {
+
+    // one try of the download
+    public interface Attempt<T> {
+        T run() throws IOException;
+    }
+
+    // waits between attempts (replaced in the tests, so they don't have to wait)
+    public interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    public static final Sleeper THREAD_SLEEPER = new Sleeper() {
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+            Thread.sleep(millis);
+        }
+    };
+
+    // thrown by an attempt that got far enough that running it again would repeat what it has
+    // already done (e.g. pages it has already handed out). the cause is thrown without a retry.
+    public static class NotRetryableException extends IOException {
+        public NotRetryableException(IOException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker breaker;
+    private final Sleeper sleeper;
+
+    public ResilientCaller(RetryPolicy retryPolicy, CircuitBreaker breaker, Sleeper sleeper) {
+        this.retryPolicy = retryPolicy;
+        this.breaker = breaker;
+        this.sleeper = sleeper;
+    }
+
+    // the result of the first attempt that works. throws the exception of the last attempt,
+    // or a CircuitBreaker.OpenException if the server isn't being asked at the moment.
+    public <T> T call(Attempt<T> attempt) throws IOException {
+        for (int attempts = 1; ; attempts++) {
+            if (!breaker.allowRequest()) {
+                throw new CircuitBreaker.OpenException("not sending requests for a while after "
+                        + "repeated failures");
+            }
+            try {
+                T result = attempt.run();
+                breaker.onSuccess();
+                return result;
+            } catch (IOException e) {
+                boolean retryable = !(e instanceof NotRetryableException);
+                IOException failure = retryable ? e : (IOException) e.getCause();
+                if (RetryPolicy.isTransient(failure)) {
+                    breaker.onFailure();
+                } else {
+                    if (!(failure instanceof InterruptedIOException)) {
+                        breaker.onSuccess(); // the server answered, it just wasn't what we wanted
+                    }
+                    throw failure;
+                }
+                if (!retryable || attempts >= retryPolicy.getMaxAttempts()) {
+                    throw failure;
+                }
+            }
+
+            long waitStart = System.nanoTime();
+            try {
+                sleeper.sleep(retryPolicy.delayMillis(attempts));
+                Metrics.RETRY_WAIT.recordSince(waitStart);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("cancelled while waiting to retry");
+            }
+        }
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.lawrence.weather;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Random;
+
+// When a failed GET is tried again, and how long to wait before it.
+//  - only network failures that can go away by themselves are retried: the server couldn't be
+//    reached, timed out, dropped the connection, or answered 5xx/429. a 404 or a response that
+//    isn't a forecast will be the same the next time, so those fail right away. so does any
+//    other IOException, e.g. ForecastCache or ForecastPageStore failing to write a file: a full
+//    disk isn't fixed by downloading again, and mustn't count against the server in the
+//    CircuitBreaker.
+//  - exponential backoff with "full jitter": retry n waits a random time between 0 and
+//    min(maxDelay, baseDelay * 2^(n-1)). the random part spreads out the retries of clients
+//    that all failed at the same moment (e.g. when the server came back), so they don't hit
+//    it again all at once.
+//  - bounded: at most maxAttempts attempts in total.
+// Only use it for idempotent requests (the forecast GETs), a retry sends the request again.
+public class RetryPolicy {
+
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 500, 4000, new Random());
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final Random random;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, Random random) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.random = random;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    // how long to wait before retry number retry (1 for the first retry)
+    public long delayMillis(int retry) {
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(retry - 1, 30));
+        if (ceiling <= 0) {
+            return 0;
+        }
+        synchronized (random) {
+            return (long) (random.nextDouble() * (ceiling + 1));
+        }
+    }
+
+    // true if a request that failed with e may succeed when it's sent again
+    public static boolean isTransient(IOException e) {
+        if (e instanceof SocketTimeoutException) {
+            return true; // (the other InterruptedIOExceptions are cancelled downloads)
+        }
+        if (e instanceof SocketException || e instanceof UnknownHostException) {
+            return true; // connection refused or reset, no route, no network (DNS), ...
+        }
+        if (e instanceof EOFException) {
+            return true; // the connection closed in the middle of the body
+        }
+        if (e instanceof HttpClient.HttpException) {
+            int code = ((HttpClient.HttpException) e).getCode();
+            return code >= HttpURLConnection.HTTP_INTERNAL_ERROR || code == 429 // Too Many Requests
+                    || code == HttpURLConnection.HTTP_CLIENT_TIMEOUT;
+        }
+        return false; // a bad answer, a cancelled download, a local file we couldn't write, ...
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.lawrence.weather;
+
+// Unit the temperatures are shown in.
+// OpenWeatherMap is asked for imperial units, so Weather keeps Fahrenheit and converts when
+// it formats a temperature. Switching units doesn't need a new download or parse.
+public enum TemperatureUnit {
+    FAHRENHEIT("\u00B0F"), // unicode for the "degree" symbol
+    CELSIUS("\u00B0C");
+
+    private final String symbol;
+
+    TemperatureUnit(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    // convert a temperature from Fahrenheit to this unit
+    public double fromFahrenheit(double fahrenheit) {
+        return this == CELSIUS ? (fahrenheit - 32) * 5 / 9 : fahrenheit;
+    }
+}
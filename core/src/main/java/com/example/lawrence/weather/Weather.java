@@ -0,0 +1,174 @@
+package com.example.lawrence.weather;
+
+import java.text.DateFormat;
+import java.text.DateFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+// This is the data/model layer for the app.
+// Only the raw values from the JSON data are stored. The display strings are created when they
+// are asked for (when a row is bound), with formatters that are shared by all the Weather objects
+// of a thread, so creating a forecast doesn't create a NumberFormat, Calendar and
+// SimpleDateFormat per day anymore. The raw values can be sorted, saved and shown in other units.
+public class Weather {
+    // final keyword means value doesn't change once value is initialize (set)
+    private final long timeStamp; // seconds since 1970 (UTC)
+    private final double minTemp; // Fahrenheit
+    private final double maxTemp; // Fahrenheit
+    private final double humidity; // percent
+    private final String description;
+    private final String iconName;
+
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+    // NumberFormat isn't thread safe, so every thread gets its own (rows are bound on the main
+    // UI thread, so in practice that's one set)
+    private static final ThreadLocal<Formats> sFormats = new ThreadLocal<>();
+
+    public Weather(long timeStamp, double minTemp, double maxTemp,
+                   double humidity, String description, String iconName) {
+        this.timeStamp = timeStamp;
+        this.minTemp = minTemp;
+        this.maxTemp = maxTemp;
+        this.humidity = humidity;
+        this.description = description;
+        this.iconName = iconName;
+    }
+
+    // day of week (e.g. Monday, Tuesday, etc.) from the timestamp
+    public String getDayOfWeek() {
+        TimeZone tz = TimeZone.getDefault(); // get device's time zone
+
+        // local time in the device's time zone, then count whole days since 1970-01-01 (a Thursday)
+        long millis = timeStamp * 1000; // convert secs to millisecs
+        millis += tz.getOffset(millis);
+        long days = millis / MILLIS_PER_DAY;
+        if (millis % MILLIS_PER_DAY < 0) {
+            days--; // round down for times before 1970
+        }
+        int dayOfWeek = (int) (((days + 4) % 7 + 7) % 7) + 1; // Calendar.SUNDAY (1) .. SATURDAY (7)
+
+        return formats().dayNames[dayOfWeek];
+    }
+
+    // time of day (e.g. 3:00 PM) in the device's time zone, for the hourly forecast
+    public String getTimeOfDay() {
+        DateFormat time = formats().time;
+        time.setTimeZone(TimeZone.getDefault());
+        return time.format(new Date(timeStamp * 1000));
+    }
+
+    public String getMinTemp() {
+        return getMinTemp(TemperatureUnit.FAHRENHEIT);
+    }
+
+    public String getMinTemp(TemperatureUnit unit) {
+        return formatTemp(minTemp, unit);
+    }
+
+    public String getMaxTemp() {
+        return getMaxTemp(TemperatureUnit.FAHRENHEIT);
+    }
+
+    public String getMaxTemp(TemperatureUnit unit) {
+        return formatTemp(maxTemp, unit);
+    }
+
+    // get humidity percentage, rather than a number.
+    public String getHumidity() {
+        return formats().percent.format(humidity / 100.0);
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    // url to fetch icon image for the weather condition.
+    public String getIconURL() {
+        return "http://openweathermap.org/img/w/" + iconName + ".png";
+    }
+
+    public long getTimeStamp() {
+        return timeStamp;
+    }
+
+    public double getMinTempValue() {
+        return minTemp;
+    }
+
+    public double getMaxTempValue() {
+        return maxTemp;
+    }
+
+    public double getHumidityValue() {
+        return humidity;
+    }
+
+    public String getIconName() {
+        return iconName;
+    }
+
+    // same day (or 3 hours) with the same values, used to find the rows that changed after a refresh
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Weather)) {
+            return false;
+        }
+        Weather weather = (Weather) other;
+        return timeStamp == weather.timeStamp
+                && Double.compare(minTemp, weather.minTemp) == 0
+                && Double.compare(maxTemp, weather.maxTemp) == 0
+                && Double.compare(humidity, weather.humidity) == 0
+                && equal(description, weather.description)
+                && equal(iconName, weather.iconName);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (timeStamp ^ (timeStamp >>> 32));
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static String formatTemp(double fahrenheit, TemperatureUnit unit) {
+        return formats().number.format(unit.fromFahrenheit(fahrenheit)) + unit.getSymbol();
+    }
+
+    // this thread's formatters, created again if the user changed the language
+    private static Formats formats() {
+        Locale locale = Locale.getDefault();
+        Formats formats = sFormats.get();
+        if (formats == null || !formats.locale.equals(locale)) {
+            formats = new Formats(locale);
+            sFormats.set(formats);
+        }
+        return formats;
+    }
+
+    private static class Formats {
+        final Locale locale;
+        final NumberFormat number;
+        final NumberFormat percent;
+        final String[] dayNames; // indexed by Calendar.SUNDAY .. Calendar.SATURDAY
+        final DateFormat time;
+
+        Formats(Locale locale) {
+            this.locale = locale;
+
+            // truncate numbers after decimal point.
+            number = NumberFormat.getInstance(locale);
+            number.setMaximumFractionDigits(0);
+
+            percent = NumberFormat.getPercentInstance(locale);
+            dayNames = new DateFormatSymbols(locale).getWeekdays();
+            time = DateFormat.getTimeInstance(DateFormat.SHORT, locale);
+        }
+    }
+}
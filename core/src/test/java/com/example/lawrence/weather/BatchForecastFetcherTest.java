@@ -0,0 +1,200 @@
+package com.example.lawrence.weather;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// BatchForecastFetcher against a local mock server that takes DELAY ms per request
+public class BatchForecastFetcherTest {
+
+    private static final long DELAY = 200;
+
+    private static final List<String> CITIES = Arrays.asList(
+            "New York", "London", "Paris", "Tokyo", "Sydney", "Berlin", "Toronto", "Madrid");
+
+    // run callbacks right on the worker thread
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWeatherServer server;
+    private ThreadPoolExecutor pool;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWeatherServer(ForecastParserTest.load("forecast_daily_16.json"));
+        server.setDelay(DELAY);
+        pool = NetworkExecutors.newPool("test", 4, 16);
+        breaker = new CircuitBreaker(Clock.SYSTEM, 3, 30000);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        server.stop();
+    }
+
+    @Test
+    public void citiesAreFetchedInParallel() throws Exception {
+        Recorder recorder = new Recorder();
+        long start = System.nanoTime();
+        newFetcher(4).fetchAll(CITIES, recorder);
+        assertTrue(recorder.finished.await(5, TimeUnit.SECONDS));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(CITIES.size(), recorder.loaded.size());
+        assertTrue(recorder.failed.isEmpty());
+        // 8 cities, 4 at a time: about 2 round trips instead of 8
+        assertTrue("took " + elapsed + " ms", elapsed < CITIES.size() * DELAY / 2);
+    }
+
+    @Test
+    public void parallelismIsBounded() throws Exception {
+        Recorder recorder = new Recorder();
+        long start = System.nanoTime();
+        newFetcher(1).fetchAll(CITIES, recorder);
+        assertTrue(recorder.finished.await(5, TimeUnit.SECONDS));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(CITIES.size(), recorder.loaded.size());
+        assertTrue("took " + elapsed + " ms", elapsed >= CITIES.size() * DELAY);
+    }
+
+    @Test
+    public void cancelStopsDelivery() throws Exception {
+        Recorder recorder = new Recorder();
+        BatchForecastFetcher.Batch batch = newFetcher(2).fetchAll(CITIES, recorder);
+        batch.cancel();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertTrue(recorder.loaded.size() <= 2); // nothing after the requests already running
+        assertEquals(1, recorder.finished.getCount());
+    }
+
+    @Test
+    public void workersDroppedFromFullQueueStillFinish() throws Exception {
+        // one thread, busy, and room for one waiting task
+        pool.shutdownNow();
+        pool = NetworkExecutors.newPool("test", 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        Recorder recorder = new Recorder();
+        newFetcher(2).fetchAll(CITIES, recorder); // the second worker pushes out the first
+        pool.execute(new FutureTask<Void>(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, null)); // and this one pushes out the second
+        release.countDown();
+
+        assertTrue(recorder.finished.await(5, TimeUnit.SECONDS));
+        assertTrue(recorder.loaded.isEmpty());
+        assertEquals(CITIES, recorder.failed);
+    }
+
+    @Test
+    public void cityThatThrowsStillFinishes() throws Exception {
+        // a bug for one city mustn't lose it, or the cities after it on the same worker
+        ForecastUrls urls = new ForecastUrls(server.url("/forecast/daily?q=").toString(), "&units=imperial", "&APPID=key") {
+            @Override
+            public URL forCity(String city) {
+                if (city.equals("Paris")) {
+                    throw new IllegalStateException("bug");
+                }
+                return super.forCity(city);
+            }
+        };
+        Recorder recorder = new Recorder();
+        newFetcher(2, urls).fetchAll(CITIES, recorder);
+        assertTrue(recorder.finished.await(5, TimeUnit.SECONDS));
+
+        assertEquals(Collections.singletonList("Paris"), recorder.failed);
+        assertEquals(CITIES.size() - 1, recorder.loaded.size());
+    }
+
+    @Test
+    public void openBreakerStopsTheRefresh() throws Exception {
+        server.setDelay(0);
+        server.setFailing(true);
+        Recorder recorder = new Recorder();
+        newFetcher(1).fetchAll(CITIES, recorder);
+        assertTrue(recorder.finished.await(5, TimeUnit.SECONDS));
+
+        assertEquals(CITIES, recorder.failed);
+        // 3 failures (the first city and its retry, the second city) open the breaker, the rest don't even ask
+        assertEquals(3, server.getClientPorts().size());
+        assertEquals(FetchResult.Failure.UNAVAILABLE, recorder.failures.get(CITIES.size() - 1));
+    }
+
+    private BatchForecastFetcher newFetcher(int maxParallel) throws IOException {
+        return newFetcher(maxParallel,
+                new ForecastUrls(server.url("/forecast/daily?q=").toString(), "&units=imperial", "&APPID=key"));
+    }
+
+    private BatchForecastFetcher newFetcher(int maxParallel, ForecastUrls urls) throws IOException {
+        ForecastCache cache = new ForecastCache(new File(folder.getRoot(), "forecasts"), 0);
+        ResilientCaller caller = new ResilientCaller(new RetryPolicy(2, 1, 1, new Random(1)), breaker,
+                ResilientCaller.THREAD_SLEEPER);
+        return new BatchForecastFetcher(new ForecastFetcher(new HttpClient(), cache), urls, caller, pool,
+                DIRECT, maxParallel);
+    }
+
+    private static class Recorder implements BatchForecastFetcher.Listener {
+        final List<String> loaded = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> failed = Collections.synchronizedList(new ArrayList<String>());
+        final List<FetchResult.Failure> failures = Collections.synchronizedList(new ArrayList<FetchResult.Failure>());
+        final CountDownLatch finished = new CountDownLatch(1);
+
+        @Override
+        public void onCityResult(String query, FetchResult<ForecastCache.Entry> result) {
+            if (result.getStatus() == FetchResult.Status.FRESH) {
+                assertEquals("New York", result.getValue().getCity());
+                loaded.add(query);
+            } else {
+                failed.add(query);
+                failures.add(result.getFailure());
+            }
+        }
+
+        @Override
+        public void onFinished() {
+            finished.countDown();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.lawrence.weather;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    private final PrefetchPolicyTest.FakeClock clock = new PrefetchPolicyTest.FakeClock();
+    private final CircuitBreaker breaker = new CircuitBreaker(clock, 3, 30000);
+
+    @Test
+    public void opensAfterFailuresInARow() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess(); // starts counting again
+        breaker.onFailure();
+        breaker.onFailure();
+        assertTrue(breaker.allowRequest());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void letsOneTrialThroughAfterTheOpenTime() {
+        openBreaker();
+
+        clock.advance(29999);
+        assertFalse(breaker.allowRequest());
+        clock.advance(1);
+        assertTrue("trial", breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse("only one trial at a time", breaker.allowRequest());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void failedTrialOpensAgain() {
+        openBreaker();
+        clock.advance(30000);
+        assertTrue(breaker.allowRequest());
+
+        breaker.onFailure(); // one failure is enough while half open
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        clock.advance(30000);
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void trialThatNeverReportsBackIsReplaced() {
+        openBreaker();
+        clock.advance(30000);
+        assertTrue(breaker.allowRequest()); // e.g. cancelled, never calls onSuccess()/onFailure()
+
+        clock.advance(30000);
+        assertTrue(breaker.allowRequest());
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+        assertFalse(breaker.allowRequest());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.lawrence.weather;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CityIndexTest {
+
+    private static final String CITIES = ""
+            + "2643743\tLondon\tGB\n"
+            + "6058560\tLondon\tCA\n"
+            + "2643741\tCity of London\tGB\n"
+            + "2988507\tParis\tFR\n"
+            + "4717560\tParis\tUS\n"
+            + "3448439\tSão Paulo\tBR\n"
+            + "1850147\tTokyo\tJP\n"
+            + "not a city\n"
+            + "\n"
+            + "5128581\tNew York\tUS\n";
+
+    @Test
+    public void readsTheListAndSkipsBrokenLines() throws Exception {
+        assertEquals(8, read().size());
+    }
+
+    @Test
+    public void searchesByPrefixIgnoringCaseAndAccents() throws Exception {
+        CityIndex index = read();
+
+        List<CityIndex.City> cities = index.search("lon", 10);
+        assertEquals(2, cities.size());
+        assertEquals("London, CA", cities.get(0).toString());
+        assertEquals(6058560, cities.get(0).getId());
+        assertEquals("London, GB", cities.get(1).toString());
+
+        cities = index.search("  SAO p", 10);
+        assertEquals(1, cities.size());
+        assertEquals(3448439, cities.get(0).getId());
+
+        assertEquals(1, index.search("p", 1).size()); // limit
+        assertTrue(index.search("x", 10).isEmpty());
+        assertTrue(index.search("", 10).isEmpty());
+    }
+
+    @Test
+    public void findsOnlyUnambiguousCities() throws Exception {
+        CityIndex index = read();
+
+        assertEquals(1850147, index.find("tokyo").getId());
+        assertEquals(2643743, index.find("London, GB").getId());
+        assertEquals(4717560, index.find("paris,us").getId());
+        assertNull(index.find("Paris")); // FR or US
+        assertNull(index.find("Lond"));
+        assertNull(index.find("Berlin"));
+    }
+
+    @Test
+    public void largeListLooksUpInMicroseconds() {
+        // a list the size of OpenWeatherMap's, in random order
+        Random random = new Random(42);
+        CityIndex.Builder builder = new CityIndex.Builder();
+        for (int i = 0; i < 200000; ++i) {
+            builder.add(i, Integer.toString(random.nextInt(Integer.MAX_VALUE), 36), "US");
+        }
+        CityIndex index = builder.build();
+
+        // warm up, then time the lookups (generous bound, the JMH benchmark has the real numbers)
+        for (int i = 0; i < 10000; ++i) {
+            index.search(Integer.toString(i, 36), 8);
+        }
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < 10000; ++i) {
+            found += index.search(Integer.toString(i + 10000, 36), 8).size();
+        }
+        long micros = (System.nanoTime() - start) / 10000 / 1000;
+        assertTrue("found " + found, found > 0);
+        assertTrue(micros + "us per lookup", micros < 100);
+
+        // sorted by name
+        List<CityIndex.City> cities = index.search("a", 8);
+        for (int i = 1; i < cities.size(); ++i) {
+            assertTrue(cities.get(i - 1).getName().compareTo(cities.get(i).getName()) <= 0);
+        }
+    }
+
+    private static CityIndex read() throws Exception {
+        return CityIndex.read(new StringReader(CITIES));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.lawrence.weather;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static org.junit.Assert.*;
+
+public class CitySearchTest {
+
+    private static final long DEBOUNCE = 50;
+
+    private final List<String> results = new CopyOnWriteArrayList<>();
+    private final CitySearch.Callback callback = new CitySearch.Callback() {
+        @Override
+        public void onResults(String query, List<CityIndex.City> cities) {
+            results.add(query + "=" + cities.size());
+        }
+    };
+
+    private ScheduledThreadPoolExecutor scheduler;
+    private CitySearch search;
+
+    @Before
+    public void setUp() throws Exception {
+        CityIndex index = CityIndex.read(new StringReader(
+                "2643743\tLondon\tGB\n6058560\tLondon\tCA\n2988507\tParis\tFR\n"));
+        scheduler = new ScheduledThreadPoolExecutor(1);
+        Executor direct = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        search = new CitySearch(index, scheduler, direct, DEBOUNCE, 8);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void fastTypingLooksUpOnlyTheLastQuery() throws Exception {
+        search.query("l", callback);
+        search.query("lo", callback);
+        search.query("lon", callback);
+        Thread.sleep(DEBOUNCE * 4);
+
+        assertEquals(1, results.size());
+        assertEquals("lon=2", results.get(0));
+    }
+
+    @Test
+    public void pausesLookUpEveryQuery() throws Exception {
+        search.query("p", callback);
+        Thread.sleep(DEBOUNCE * 4);
+        search.query("px", callback);
+        Thread.sleep(DEBOUNCE * 4);
+
+        assertEquals(2, results.size());
+        assertEquals("p=1", results.get(0));
+        assertEquals("px=0", results.get(1));
+    }
+
+    @Test
+    public void cancelDropsTheLookup() throws Exception {
+        search.query("lon", callback);
+        search.cancel();
+        Thread.sleep(DEBOUNCE * 4);
+
+        assertTrue(results.isEmpty());
+    }
+}
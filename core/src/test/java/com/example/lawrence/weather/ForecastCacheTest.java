@@ -0,0 +1,192 @@
+package com.example.lawrence.weather;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ForecastCacheTest {
+
+    private static final long TTL = 30 * 60 * 1000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ForecastCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new ForecastCache(new File(folder.getRoot(), "forecasts"), TTL);
+    }
+
+    @Test
+    public void roundTripsForecast() throws Exception {
+        List<Weather> forecast = Arrays.asList(
+                new Weather(1458666000L, 53.7, 62.62, 88, "light rain", "10d"),
+                new Weather(1458752400L, 30.94, 40.44, 31, null, "04d"));
+        cache.put("New York", "New York", forecast, 1000L);
+
+        ForecastCache.Entry entry = cache.get("New York");
+        assertNotNull(entry);
+        assertEquals("New York", entry.getCity());
+        assertEquals(1000L, entry.getFetchedAt());
+        assertEquals(2, entry.getForecast().size());
+
+        Weather first = entry.getForecast().get(0);
+        assertEquals(1458666000L, first.getTimeStamp());
+        assertEquals(62.62, first.getMaxTempValue(), 0);
+        assertEquals("light rain", first.getDescription());
+        assertNull(entry.getForecast().get(1).getDescription());
+    }
+
+    @Test
+    public void normalizesQuery() throws Exception {
+        cache.put("  New   York,  NY ", "New York", Arrays.asList(
+                new Weather(1458666000L, 1, 2, 3, "clear sky", "01d")), 1000L);
+
+        assertNotNull(cache.get("new york, ny"));
+        assertNull(cache.get("new york"));
+    }
+
+    @Test
+    public void staleAfterTtl() throws Exception {
+        ForecastCache.Entry entry = cache.put("Boston", "Boston", Arrays.<Weather>asList(), 1000L);
+
+        assertFalse(cache.isStale(entry, 1000L + TTL - 1));
+        assertTrue(cache.isStale(entry, 1000L + TTL));
+    }
+
+    @Test
+    public void corruptFileIsAMiss() throws Exception {
+        cache.put("Boston", "Boston", Arrays.<Weather>asList(), 1000L);
+
+        // truncate every cache file
+        for (File file : new File(folder.getRoot(), "forecasts").listFiles()) {
+            new FileOutputStream(file).close();
+        }
+
+        assertNull(cache.get("Boston"));
+    }
+
+    @Test
+    public void corruptCountIsAMiss() throws Exception {
+        for (int count : new int[]{-1, Integer.MAX_VALUE}) {
+            cache.put("Boston", "Boston", Arrays.<Weather>asList(), 1000L);
+
+            // the number of days is the last thing in a file without days
+            for (File file : new File(folder.getRoot(), "forecasts").listFiles()) {
+                RandomAccessFile out = new RandomAccessFile(file, "rw");
+                out.seek(file.length() - 4);
+                out.writeInt(count);
+                out.close();
+            }
+
+            assertNull("count " + count, cache.get("Boston"));
+        }
+    }
+
+    @Test
+    public void mergeUpsertsByDay() throws Exception {
+        cache.put("Boston", "Boston", Arrays.asList(
+                new Weather(100L, 1, 2, 3, "clear sky", "01d"),
+                new Weather(200L, 1, 2, 3, "clear sky", "01d"),
+                new Weather(300L, 1, 2, 3, "clear sky", "01d"),
+                new Weather(400L, 1, 2, 3, "clear sky", "01d")), 1000L);
+
+        // a shorter response that starts a day later and has new values for day 300
+        ForecastCache.Entry merged = cache.merge("Boston", null, Arrays.asList(
+                new Weather(200L, 1, 2, 3, "clear sky", "01d"),
+                new Weather(300L, 5, 6, 7, "light rain", "10d")), 2000L, null, 0);
+
+        List<Weather> days = merged.getForecast();
+        assertEquals(3, days.size()); // day 100 is in the past now, day 400 is kept
+        assertEquals(200L, days.get(0).getTimeStamp());
+        assertEquals("light rain", days.get(1).getDescription());
+        assertEquals(400L, days.get(2).getTimeStamp());
+        assertEquals("Boston", merged.getCity());
+        assertEquals(days, cache.get("Boston").getForecast());
+    }
+
+    @Test
+    public void concurrentWritersNeverPublishATornFile() throws Exception {
+        // the foreground download, the saved locations refresh and the prefetch can all save the
+        // same city at once. whatever is read back must be one of the forecasts written, whole.
+        final int writers = 4;
+        final int days = 200;
+        Thread[] threads = new Thread[writers];
+        final Throwable[] failure = new Throwable[1];
+        for (int t = 0; t < writers; ++t) {
+            final double temp = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    List<Weather> forecast = new ArrayList<>();
+                    for (int day = 0; day < days; ++day) {
+                        forecast.add(new Weather(day, temp, temp, temp, "clear sky", "01d"));
+                    }
+                    try {
+                        for (int i = 0; i < 50; ++i) {
+                            cache.put("Boston", "Boston", forecast, 1000L);
+                        }
+                    } catch (Throwable e) {
+                        failure[0] = e;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure[0]);
+        List<Weather> forecast = cache.get("Boston").getForecast();
+        assertEquals(days, forecast.size());
+        for (Weather weather : forecast) {
+            assertEquals(forecast.get(0).getMinTempValue(), weather.getMinTempValue(), 0);
+        }
+        assertEquals("temp files are cleaned up", 1, new File(folder.getRoot(), "forecasts").list().length);
+    }
+
+    @Test
+    public void concurrentMergesKeepEveryDay() throws Exception {
+        // every merge has today plus a day of its own: whatever the order, no day may get lost
+        final int mergers = 4;
+        final int merges = 25;
+        Thread[] threads = new Thread[mergers];
+        final Throwable[] failure = new Throwable[1];
+        for (int t = 0; t < mergers; ++t) {
+            final int first = 1 + t * merges;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int day = first; day < first + merges; ++day) {
+                            cache.merge("Boston", "Boston", Arrays.asList(
+                                    new Weather(0, 50, 40, 60, "clear sky", "01d"),
+                                    new Weather(day, 50, 40, 60, "clear sky", "01d")), 1000L, null, 0);
+                        }
+                    } catch (Throwable e) {
+                        failure[0] = e;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure[0]);
+        assertEquals(1 + mergers * merges, cache.get("Boston").getForecast().size());
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.lawrence.weather;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+// the asynchronous API on a plain JVM thread pool, against the local mock server
+public class ForecastClientTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWeatherServer server;
+    private ExecutorService workers;
+    private CircuitBreaker breaker;
+    private ForecastClient client;
+
+    // callbacks run right away on the worker thread, like a server job would use it
+    private final Executor direct = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWeatherServer(ForecastParserTest.load("forecast_daily_16.json"));
+        workers = Executors.newFixedThreadPool(16);
+        ForecastCache cache = new ForecastCache(new File(folder.getRoot(), "forecasts"), 0);
+        HttpClient http = new HttpClient(1000, 1000);
+        breaker = new CircuitBreaker(Clock.SYSTEM, 5, 30000);
+        ResilientCaller caller = new ResilientCaller(new RetryPolicy(2, 1, 1, new Random(1)), breaker,
+                ResilientCaller.THREAD_SLEEPER);
+        ForecastUrls urls = new ForecastUrls(server.url("/forecast/daily?q=").toString(), "&units=imperial&cnt=16",
+                "&APPID=key");
+        client = new ForecastClient(urls, new ForecastFetcher(http, cache), null, caller, workers, direct);
+    }
+
+    @After
+    public void tearDown() {
+        workers.shutdownNow();
+        server.stop();
+    }
+
+    @Test
+    public void fetchDeliversResultToCallbackAndFuture() throws Exception {
+        final CountDownLatch delivered = new CountDownLatch(1);
+        final List<FetchResult<ForecastCache.Entry>> results = Collections.synchronizedList(
+                new ArrayList<FetchResult<ForecastCache.Entry>>());
+
+        Future<FetchResult<ForecastCache.Entry>> future = client.fetch("New York",
+                new ForecastClient.Callback<ForecastCache.Entry>() {
+                    @Override
+                    public void onResult(String query, FetchResult<ForecastCache.Entry> result) {
+                        assertEquals("New York", query);
+                        results.add(result);
+                        delivered.countDown();
+                    }
+                });
+
+        FetchResult<ForecastCache.Entry> result = future.get(5, TimeUnit.SECONDS);
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(FetchResult.Status.FRESH, result.getStatus());
+        assertEquals(16, result.getValue().getForecast().size());
+        assertSame(result, results.get(0));
+    }
+
+    @Test
+    public void failureIsAResultNotAnException() throws Exception {
+        server.setFailing(true);
+
+        FetchResult<ForecastCache.Entry> result = client.fetch("New York", null).get(5, TimeUnit.SECONDS);
+
+        assertEquals(FetchResult.Status.FAILED, result.getStatus());
+        assertEquals(FetchResult.Failure.SERVER_ERROR, result.getFailure());
+    }
+
+    @Test
+    public void missingUrlFails() throws Exception {
+        FetchResult<ForecastCache.Entry> result = client.fetch("New York", null, null).get(5, TimeUnit.SECONDS);
+
+        assertEquals(FetchResult.Status.FAILED, result.getStatus());
+        assertEquals(FetchResult.Failure.NOT_FOUND, result.getFailure());
+        assertEquals(0, server.getClientPorts().size());
+    }
+
+    @Test
+    public void readCachedDoesNotDownload() throws Exception {
+        FetchResult<ForecastCache.Entry> none = client.readCached("New York", null).get(5, TimeUnit.SECONDS);
+        assertEquals(FetchResult.Status.FAILED, none.getStatus());
+
+        client.fetch("New York", null).get(5, TimeUnit.SECONDS);
+        FetchResult<ForecastCache.Entry> saved = client.readCached("new york", null).get(5, TimeUnit.SECONDS);
+
+        assertEquals(FetchResult.Status.CACHED, saved.getStatus());
+        assertEquals(FetchResult.Failure.NONE, saved.getFailure());
+        assertEquals(16, saved.getValue().getForecast().size());
+        assertEquals(1, server.getClientPorts().size());
+    }
+
+    @Test
+    public void cancelledFetchDoesNotCallBack() throws Exception {
+        server.setDelay(300);
+        final AtomicInteger callbacks = new AtomicInteger();
+
+        Future<FetchResult<ForecastCache.Entry>> future = client.fetch("New York",
+                new ForecastClient.Callback<ForecastCache.Entry>() {
+                    @Override
+                    public void onResult(String query, FetchResult<ForecastCache.Entry> result) {
+                        callbacks.incrementAndGet();
+                    }
+                });
+        future.cancel(true);
+        Thread.sleep(500);
+
+        assertTrue(future.isCancelled());
+        assertEquals(0, callbacks.get());
+    }
+
+    @Test
+    public void droppedFetchCallsBackWithAFailure() throws Exception {
+        // one thread, busy, and room for one waiting download
+        ThreadPoolExecutor pool = NetworkExecutors.newPool("test", 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        pool.execute(new FutureTask<Void>(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, null));
+        ForecastClient small = new ForecastClient(
+                new ForecastUrls(server.url("/forecast/daily?q=").toString(), "", "&APPID=key"),
+                new ForecastFetcher(new HttpClient(1000, 1000), new ForecastCache(folder.newFolder("small"), 0)),
+                null, new ResilientCaller(new RetryPolicy(1, 1, 1, new Random(1)), breaker,
+                        ResilientCaller.THREAD_SLEEPER), pool, direct);
+        final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch delivered = new CountDownLatch(2);
+        ForecastClient.Callback<ForecastCache.Entry> callback = new ForecastClient.Callback<ForecastCache.Entry>() {
+            @Override
+            public void onResult(String query, FetchResult<ForecastCache.Entry> result) {
+                results.add(query + ":" + result.getStatus());
+                delivered.countDown();
+            }
+        };
+
+        Future<FetchResult<ForecastCache.Entry>> dropped = small.fetch("London", callback);
+        small.fetch("Paris", callback); // pushes London out of the queue
+        release.countDown();
+
+        try {
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList("London:FAILED", "Paris:FRESH"), results);
+            assertFalse(dropped.isCancelled());
+            assertEquals(FetchResult.Status.FAILED, dropped.get().getStatus());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void aggregatesManyCitiesInParallel() throws Exception {
+        server.setDelay(5); // a little latency, so running requests in parallel matters
+        List<String> cities = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            cities.add("city " + i);
+        }
+
+        long start = System.nanoTime();
+        ForecastSummary summary = client.aggregate(cities, 16, new ForecastSummary()).get(60, TimeUnit.SECONDS);
+        long millis = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(500, summary.getCount(FetchResult.Status.FRESH));
+        assertEquals(0, summary.getCount(FetchResult.Status.FAILED));
+        assertEquals(500, server.getClientPorts().size());
+
+        List<ForecastSummary.Day> days = summary.getDays();
+        assertEquals(16, days.size());
+        for (ForecastSummary.Day day : days) {
+            assertEquals(500, day.getCities());
+            assertTrue(day.toString(), day.getMinTemp() <= day.getMaxTemp());
+            // every city got the same forecast from the mock server
+            assertEquals(day.toString(), day.getMaxTemp(), day.getMeanMaxTemp(), 1e-6);
+        }
+        assertTrue("one at a time would take at least " + 500 * 5 + " ms, took " + millis, millis < 500 * 5);
+    }
+
+    @Test
+    public void aggregateOfNothingIsDoneRightAway() throws Exception {
+        ForecastSummary summary = client.aggregate(Collections.<String>emptyList(), 4, new ForecastSummary())
+                .get(1, TimeUnit.SECONDS);
+
+        assertTrue(summary.getDays().isEmpty());
+    }
+
+    @Test
+    public void aggregateCountsFailuresAndServesCache() throws Exception {
+        List<String> cities = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            cities.add("city " + i);
+        }
+        client.aggregate(cities, 4, new ForecastSummary()).get(10, TimeUnit.SECONDS);
+
+        server.setFailing(true);
+        ForecastSummary summary = client.aggregate(cities, 4, new ForecastSummary()).get(10, TimeUnit.SECONDS);
+
+        assertEquals(20, summary.getCount(FetchResult.Status.CACHED));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        // once the breaker opened the rest came from the cache without asking the server
+        assertTrue(summary.getCount(FetchResult.Failure.UNAVAILABLE) > 0);
+        assertEquals(16, summary.getDays().size());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.lawrence.weather;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ForecastDiffTest {
+
+    @Test
+    public void unchangedForecastHasNoChanges() {
+        List<Weather> days = Arrays.asList(day(100, 50), day(200, 60));
+        assertTrue(ForecastDiff.compute(days, Arrays.asList(day(100, 50), day(200, 60))).isEmpty());
+    }
+
+    @Test
+    public void findsChangedDays() {
+        ForecastDiff diff = ForecastDiff.compute(
+                Arrays.asList(day(100, 50), day(200, 60), day(300, 70)),
+                Arrays.asList(day(100, 50), day(200, 61), day(300, 70)));
+
+        assertFalse(diff.hasStructuralChanges());
+        assertEquals(Collections.singletonList(1), diff.getChanged());
+    }
+
+    @Test
+    public void findsRemovedAndInsertedDays() {
+        // the window moved a day forward: day 100 is gone, day 400 is new, day 300 changed
+        ForecastDiff diff = ForecastDiff.compute(
+                Arrays.asList(day(100, 50), day(200, 60), day(300, 70)),
+                Arrays.asList(day(200, 60), day(300, 71), day(400, 80)));
+
+        assertTrue(diff.hasStructuralChanges());
+        assertEquals(Collections.singletonList(0), diff.getRemoved());
+        assertEquals(Collections.singletonList(2), diff.getInserted());
+        assertEquals(Collections.singletonList(1), diff.getChanged());
+    }
+
+    @Test
+    public void removedPositionsAreHighestFirst() {
+        ForecastDiff diff = ForecastDiff.compute(
+                Arrays.asList(day(100, 50), day(200, 60), day(300, 70)),
+                Collections.<Weather>emptyList());
+
+        assertEquals(Arrays.asList(2, 1, 0), diff.getRemoved());
+    }
+
+    @Test
+    public void replayingTheDiffGivesTheNewList() {
+        // what WeatherAdapter.apply() tells RecyclerView, on an hourly sized list
+        Random random = new Random(42);
+        List<Weather> oldList = new ArrayList<>();
+        List<Weather> newList = new ArrayList<>();
+        for (int hour = 0; hour < 400; ++hour) {
+            long timeStamp = hour * 3600L;
+            if (random.nextInt(10) != 0) {
+                oldList.add(day(timeStamp, 50));
+            }
+            if (random.nextInt(10) != 0) {
+                newList.add(day(timeStamp, random.nextInt(5) == 0 ? 51 : 50));
+            }
+        }
+
+        ForecastDiff diff = ForecastDiff.compute(oldList, newList);
+        List<Weather> rows = new ArrayList<>(oldList);
+        for (int position : diff.getRemoved()) {
+            rows.remove(position);
+        }
+        for (int position : diff.getInserted()) {
+            rows.add(position, newList.get(position));
+        }
+        for (int position : diff.getChanged()) {
+            assertEquals(rows.get(position).getTimeStamp(), newList.get(position).getTimeStamp());
+            rows.set(position, newList.get(position));
+        }
+
+        assertEquals(newList, rows);
+    }
+
+    private static Weather day(long timeStamp, double maxTemp) {
+        return new Weather(timeStamp, 40, maxTemp, 50, "clear sky", "01d");
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.lawrence.weather;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// Checks ForecastParser against recorded OpenWeatherMap responses (src/test/resources)
+// and compares it with the old "read into a String + JSONObject" path.
+public class ForecastParserTest {
+
+    private static final String DAILY_16 = "forecast_daily_16.json";
+    private static final String HOURLY_40 = "forecast_3hour_40.json";
+    private static final String CITIES_100 = "group_100_cities.json";
+
+    @Test
+    public void parsesDailyForecast() throws Exception {
+        List<Weather> forecast = ForecastParser.parse(reader(DAILY_16));
+
+        assertEquals(16, forecast.size());
+        Weather first = forecast.get(0);
+        assertEquals("light rain", first.getDescription());
+        assertEquals("http://openweathermap.org/img/w/10d.png", first.getIconURL());
+    }
+
+    @Test
+    public void parsesThreeHourForecast() throws Exception {
+        List<Weather> forecast = ForecastParser.parse(reader(HOURLY_40));
+        assertEquals(40, forecast.size());
+    }
+
+    @Test
+    public void parsesGroupResponse() throws Exception {
+        // current weather of 100 cities (group endpoint), same "main" layout as the 3 hour forecast
+        List<Weather> cities = ForecastParser.parse(reader(CITIES_100));
+        assertEquals(100, cities.size());
+        assertNotNull(cities.get(99).getIconName());
+    }
+
+    @Test
+    public void matchesJSONObjectPath() throws Exception {
+        List<Weather> streamed = ForecastParser.parse(reader(DAILY_16));
+        List<Weather> legacy = parseWithJSONObject(new ByteArrayInputStream(load(DAILY_16)));
+
+        assertEquals(legacy.size(), streamed.size());
+        for (int i = 0; i < legacy.size(); ++i) {
+            assertEquals(legacy.get(i).getDayOfWeek(), streamed.get(i).getDayOfWeek());
+            assertEquals(legacy.get(i).getMinTemp(), streamed.get(i).getMinTemp());
+            assertEquals(legacy.get(i).getMaxTemp(), streamed.get(i).getMaxTemp());
+            assertEquals(legacy.get(i).getHumidity(), streamed.get(i).getHumidity());
+            assertEquals(legacy.get(i).getDescription(), streamed.get(i).getDescription());
+            assertEquals(legacy.get(i).getIconURL(), streamed.get(i).getIconURL());
+        }
+    }
+
+    @Test
+    public void reportsCity() throws Exception {
+        final String[] city = new String[2];
+        ForecastParser.parse(reader(DAILY_16), new ForecastParser.Listener() {
+            @Override
+            public void onCity(String name, String country) {
+                city[0] = name;
+                city[1] = country;
+            }
+
+            @Override
+            public void onWeather(Weather weather) {}
+        });
+
+        assertEquals("New York", city[0]);
+        assertEquals("US", city[1]);
+    }
+
+    @Test
+    public void handlesEscapesAndNestedValues() throws Exception {
+        String json = "{\"extra\":[1,{\"a\":[true,false,null]},\"x\\\"y\"],"
+                + "\"list\":[{\"dt\":86400,\"temp\":{\"min\":-1.5e1,\"max\":20},\"humidity\":50,"
+                + "\"weather\":[{\"description\":\"caf\\u00e9 \\\"fog\\\"\",\"icon\":\"50d\"},{\"icon\":\"01d\"}]}]}";
+
+        List<Weather> forecast = ForecastParser.parse(new StringReader(json));
+
+        assertEquals(1, forecast.size());
+        assertEquals("caf\u00e9 \"fog\"", forecast.get(0).getDescription());
+        assertTrue(forecast.get(0).getIconURL().endsWith("50d.png"));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedResponse() throws Exception {
+        ForecastParser.parse(new StringReader("{\"list\":[{\"dt\":1,"));
+    }
+
+    // the way GetWeatherTask used to do it: whole body into a String, then a JSONObject tree,
+    // then walk the tree to build the Weather objects.
+    private static List<Weather> parseWithJSONObject(InputStream in) throws Exception {
+        JSONArray list = readJSONObject(in).getJSONArray("list");
+        List<Weather> forecast = new ArrayList<>();
+        for (int i = 0; i < list.length(); ++i) {
+            JSONObject data = list.getJSONObject(i);
+            JSONObject temperatures = data.getJSONObject("temp");
+            JSONObject weather = data.getJSONArray("weather").getJSONObject(0);
+            forecast.add(new Weather(
+                    data.getLong("dt"),
+                    temperatures.getDouble("min"),
+                    temperatures.getDouble("max"),
+                    data.getDouble("humidity"),
+                    weather.getString("description"),
+                    weather.getString("icon")));
+        }
+        return forecast;
+    }
+
+    private static JSONObject readJSONObject(InputStream in) throws Exception {
+        StringBuilder builder = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            builder.append(line);
+        }
+        return new JSONObject(builder.toString());
+    }
+
+    private InputStreamReader reader(String fixture) throws IOException {
+        return new InputStreamReader(new ByteArrayInputStream(load(fixture)), "UTF-8");
+    }
+
+    static byte[] load(String fixture) throws IOException {
+        InputStream in = ForecastParserTest.class.getClassLoader().getResourceAsStream(fixture);
+        assertNotNull("missing fixture " + fixture, in);
+        return readFully(in);
+    }
+
+    // reads the stream to the end and closes it
+    static byte[] readFully(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.lawrence.weather;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+// a 3 hour forecast downloaded page by page from the local mock server
+public class HourlyForecastFetcherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final PrefetchPolicyTest.FakeClock clock = new PrefetchPolicyTest.FakeClock();
+    private MockWeatherServer server;
+    private ForecastPageStore store;
+    private HourlyForecastFetcher fetcher;
+    private URL url;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWeatherServer(ForecastParserTest.load("forecast_3hour_40.json"));
+        store = new ForecastPageStore(new File(folder.getRoot(), "hourly"), 30 * 60 * 1000L);
+        fetcher = new HourlyForecastFetcher(new HttpClient(), store, clock);
+        url = new ForecastUrls(server.url("/forecast/daily?q=").toString(), "&units=imperial&cnt=16", "&APPID=key")
+                .hourlyForCity("New York");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void hourlyUrlUsesTheThreeHourEndpoint() {
+        assertTrue(url.toString(), url.getPath().endsWith("/forecast"));
+        assertEquals("q=New+York&units=imperial&APPID=key", url.getQuery());
+    }
+
+    @Test
+    public void deliversPagesBeforeTheDownloadIsComplete() throws Exception {
+        final List<Integer> pages = new ArrayList<>();
+        final List<Weather> all = new ArrayList<>();
+        ForecastPageStore.Index index = fetcher.fetch("New York", url, new HourlyForecastFetcher.Listener() {
+            @Override
+            public void onCity(String city) {}
+
+            @Override
+            public void onPage(int page, List<Weather> weathers) {
+                // the page is saved, but the forecast isn't complete yet
+                assertNull(store.getIndex("New York"));
+                pages.add(page);
+                all.addAll(weathers);
+            }
+        });
+
+        assertEquals(40, all.size());
+        assertEquals(5, pages.size());
+        assertEquals(4, (int) pages.get(4));
+        assertEquals(40, index.getCount());
+        assertEquals(5, index.getPageCount());
+        assertEquals(clock.currentTimeMillis(), index.getFetchedAt());
+        assertNotNull(index.getCity());
+
+        // pages read back from disk are the ones that were delivered
+        assertEquals(all.subList(16, 24), store.readPage("new york", 2));
+    }
+
+    @Test
+    public void failedDownloadSavesNothing() throws Exception {
+        server.setFailing(true);
+        try {
+            fetcher.fetch("New York", url, new HourlyForecastFetcher.Listener() {
+                @Override
+                public void onCity(String city) {}
+
+                @Override
+                public void onPage(int page, List<Weather> weathers) {
+                    fail("no pages expected");
+                }
+            });
+            fail("expected an IOException");
+        } catch (IOException expected) {
+        }
+        assertNull(store.getIndex("New York"));
+    }
+
+    @Test
+    public void failedRefreshKeepsTheSavedForecast() throws Exception {
+        HourlyForecastFetcher.Listener ignore = new HourlyForecastFetcher.Listener() {
+            @Override
+            public void onCity(String city) {}
+
+            @Override
+            public void onPage(int page, List<Weather> weathers) {}
+        };
+        ResilientCaller caller = new ResilientCaller(new RetryPolicy(1, 1, 1, new Random(1)),
+                new CircuitBreaker(clock, 5, 30000), ResilientCaller.THREAD_SLEEPER);
+        fetcher = new HourlyForecastFetcher(new HttpClient(1000, 300), store, clock);
+        assertEquals(FetchResult.Status.FRESH, fetcher.fetch("New York", url, ignore, caller).getStatus());
+        List<Weather> savedPage = store.readPage("New York", 4);
+
+        // the next body stops halfway, for longer than the read timeout
+        server.setStallBody(1000);
+        clock.advance(60 * 60 * 1000L);
+        FetchResult<ForecastPageStore.Index> result = fetcher.fetch("New York", url, ignore, caller);
+
+        assertEquals(FetchResult.Status.CACHED, result.getStatus());
+        assertEquals(FetchResult.Failure.TIMEOUT, result.getFailure());
+        ForecastPageStore.Index index = store.getIndex("New York");
+        assertNotNull(index);
+        assertEquals(40, index.getCount());
+        assertEquals(index.getFetchedAt(), result.getValue().getFetchedAt());
+        assertEquals(savedPage, store.readPage("New York", 4));
+        // the index and the 5 pages saved the first time, nothing of the failed download
+        File dir = new File(folder.getRoot(), "hourly").listFiles()[0];
+        assertEquals(6, dir.list().length);
+    }
+}
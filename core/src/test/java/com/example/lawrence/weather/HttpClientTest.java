@@ -0,0 +1,141 @@
+package com.example.lawrence.weather;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// HttpClient and ForecastFetcher against a local mock of the OpenWeatherMap API
+public class HttpClientTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] payload;
+    private MockWeatherServer server;
+    private HttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        payload = ForecastParserTest.load("forecast_3hour_40.json");
+        server = new MockWeatherServer(payload);
+        client = new HttpClient();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void gzipTransfersFewerBytes() throws Exception {
+        HttpClient.Response response = client.get(server.url("/forecast"));
+        byte[] body = ForecastParserTest.readFully(response.getBody());
+        response.close();
+
+        assertArrayEquals(payload, body);
+        assertTrue("compressed " + response.getBytesRead() + " of " + payload.length,
+                response.getBytesRead() < payload.length / 2);
+    }
+
+    @Test
+    public void notModifiedHasNoBody() throws Exception {
+        HttpClient.Response response = client.get(server.url("/forecast"), MockWeatherServer.ETAG, 0);
+        byte[] body = ForecastParserTest.readFully(response.getBody()); // says gzip, but is empty
+        response.close();
+
+        assertTrue(response.isNotModified());
+        assertEquals(0, body.length);
+        assertEquals(0, response.getBytesRead());
+    }
+
+    @Test
+    public void errorWithoutBodyIsEmpty() throws Exception {
+        server.setFailing(true);
+        HttpClient.Response response = client.get(server.url("/forecast"));
+        byte[] body = ForecastParserTest.readFully(response.getBody());
+        response.close();
+
+        assertEquals(503, response.getCode());
+        assertEquals(0, body.length);
+    }
+
+    @Test
+    public void reusesConnection() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            HttpClient.Response response = client.get(server.url("/forecast"));
+            response.close();
+        }
+
+        List<Integer> ports = server.getClientPorts();
+        assertEquals(5, ports.size());
+        for (Integer port : ports) {
+            assertEquals("new connection per request", ports.get(0), port);
+        }
+    }
+
+    @Test
+    public void fetcherRevalidatesCachedForecast() throws Exception {
+        ForecastCache cache = new ForecastCache(new File(folder.getRoot(), "forecasts"), 0);
+        ForecastFetcher fetcher = new ForecastFetcher(client, cache);
+        URL url = server.url("/forecast?q=new%20york");
+
+        ForecastCache.Entry first = fetcher.fetch("New York", url);
+        long bytesAfterFirst = server.getBodyBytesSent();
+        ForecastCache.Entry second = fetcher.fetch("New York", url);
+
+        assertEquals(40, first.getForecast().size());
+        assertEquals(MockWeatherServer.ETAG, first.getETag());
+        // the 304 didn't send a body, but we still have the whole forecast
+        assertEquals(bytesAfterFirst, server.getBodyBytesSent());
+        assertEquals(40, second.getForecast().size());
+        assertTrue(second.getFetchedAt() >= first.getFetchedAt());
+    }
+
+    // the old way (new connection, no gzip, no validators) transfers more than HttpClient
+    @Test
+    public void compareWithPlainConnection() throws Exception {
+        final int requests = 50;
+        URL url = server.url("/forecast");
+
+        long plainBytes = 0;
+        for (int i = 0; i < requests; i++) {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            InputStream in = connection.getInputStream();
+            plainBytes += ForecastParserTest.readFully(in).length;
+            connection.disconnect();
+        }
+
+        ForecastCache cache = new ForecastCache(new File(folder.getRoot(), "forecasts"), 0);
+        ForecastFetcher fetcher = new ForecastFetcher(client, cache);
+        long sentBefore = server.getBodyBytesSent();
+        for (int i = 0; i < requests; i++) {
+            fetcher.fetch("New York", url);
+        }
+        long clientBytes = server.getBodyBytesSent() - sentBefore;
+
+        assertTrue(clientBytes < plainBytes);
+    }
+
+    @Test
+    public void fetcherRecordsTimings() throws Exception {
+        Metrics.reset();
+        ForecastCache cache = new ForecastCache(new File(folder.getRoot(), "forecasts"), 0);
+        new ForecastFetcher(client, cache).fetch("New York", server.url("/forecast?q=new%20york"));
+
+        for (Metrics.Histogram step : new Metrics.Histogram[]{Metrics.CONNECT, Metrics.FIRST_BYTE,
+                Metrics.BODY_READ, Metrics.PARSE, Metrics.MODEL_BUILD}) {
+            assertEquals(step.getName(), 1, step.getCount());
+        }
+        assertTrue(Metrics.PARSE.getMaxNanos() > 0);
+    }
+}
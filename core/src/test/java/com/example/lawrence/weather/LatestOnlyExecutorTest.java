@@ -0,0 +1,90 @@
+package com.example.lawrence.weather;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LatestOnlyExecutorTest {
+
+    // the pool WeatherAdapter's diffs run on: one thread, room for one waiting task
+    private final ThreadPoolExecutor pool = NetworkExecutors.newPool("test", 1, 1);
+    private final LatestOnlyExecutor executor = new LatestOnlyExecutor(pool);
+    private final List<String> ran = Collections.synchronizedList(new ArrayList<String>());
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void newerTaskReplacesTheWaitingOne() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(task("first", started, release, null));
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        executor.execute(task("second", null, null, null));
+        executor.execute(task("third", null, null, done)); // three back to back: nothing is rejected
+        release.countDown();
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("first", "third"), ran);
+    }
+
+    @Test
+    public void failingTaskDoesNotStopTheNextOne() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                await(release);
+                throw new IllegalStateException("a bug in the task");
+            }
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        executor.execute(task("next", null, null, done));
+        release.countDown();
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("next"), ran);
+    }
+
+    private Runnable task(final String name, final CountDownLatch started, final CountDownLatch waitFor,
+                          final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (started != null) {
+                    started.countDown();
+                }
+                if (waitFor != null) {
+                    await(waitFor);
+                }
+                ran.add(name);
+                if (done != null) {
+                    done.countDown();
+                }
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
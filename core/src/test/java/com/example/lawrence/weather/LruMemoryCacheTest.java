@@ -0,0 +1,93 @@
+package com.example.lawrence.weather;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LruMemoryCacheTest {
+
+    // entries are sized by their byte[] length, like IconCache sizes Bitmaps
+    private static class ByteCache extends LruMemoryCache<String, byte[]> {
+        final List<String> evicted = new ArrayList<>();
+
+        ByteCache(int maxBytes) {
+            super(maxBytes);
+        }
+
+        @Override
+        protected int sizeOf(String key, byte[] value) {
+            return value.length;
+        }
+
+        @Override
+        protected void entryEvicted(String key, byte[] value) {
+            evicted.add(key);
+        }
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBySize() {
+        ByteCache cache = new ByteCache(100);
+        cache.put("01d", new byte[40]);
+        cache.put("02d", new byte[40]);
+        cache.get("01d"); // 02d is now the least recently used
+        cache.put("10d", new byte[40]);
+
+        assertNotNull(cache.get("01d"));
+        assertNull(cache.get("02d"));
+        assertNotNull(cache.get("10d"));
+        assertEquals(80, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertEquals("02d", cache.evicted.get(0));
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        ByteCache cache = new ByteCache(100);
+        cache.put("01d", new byte[10]);
+        cache.get("01d");
+        cache.get("01d");
+        cache.get("50n");
+
+        assertEquals(2, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    public void replacingAnEntryUpdatesSize() {
+        ByteCache cache = new ByteCache(100);
+        cache.put("01d", new byte[10]);
+        cache.put("01d", new byte[30]);
+
+        assertEquals(30, cache.size());
+        assertEquals(0, cache.evictionCount());
+    }
+
+    @Test
+    public void safeToUseFromManyThreads() throws Exception {
+        final ByteCache cache = new ByteCache(1000);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        String key = "icon" + (i % 50);
+                        if (cache.get(key) == null) {
+                            cache.put(key, new byte[i % 50 + 1]);
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(cache.size() <= 1000);
+    }
+}
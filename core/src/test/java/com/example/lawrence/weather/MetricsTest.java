@@ -0,0 +1,78 @@
+package com.example.lawrence.weather;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @Test
+    public void bucketsArePowersOfTwoMicroseconds() {
+        assertEquals(0, Metrics.Histogram.bucketOf(999)); // < 1us
+        assertEquals(1, Metrics.Histogram.bucketOf(1000));
+        assertEquals(2, Metrics.Histogram.bucketOf(2000));
+        assertEquals(2, Metrics.Histogram.bucketOf(3999));
+        assertEquals(3, Metrics.Histogram.bucketOf(4000));
+        assertEquals(Metrics.Histogram.BUCKETS - 1, Metrics.Histogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void reportsPercentiles() {
+        Metrics.Histogram histogram = new Metrics.Histogram("test");
+        for (int i = 0; i < 90; ++i) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100)); // bucket [64us, 128us)
+        }
+        for (int i = 0; i < 10; ++i) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(128), histogram.getPercentileNanos(50));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(128), histogram.getPercentileNanos(90));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), histogram.getPercentileNanos(99)); // capped at max
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), histogram.getMaxNanos());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(2090), histogram.getMeanNanos());
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(50));
+    }
+
+    @Test
+    public void recordsFromManyThreads() throws Exception {
+        final Metrics.Histogram histogram = new Metrics.Histogram("test");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; ++t) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; ++i) {
+                        histogram.record(i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40000, histogram.getCount());
+        assertEquals(9999, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void dumpsEveryStep() {
+        StringWriter out = new StringWriter();
+        Metrics.dump(new PrintWriter(out));
+
+        for (String step : new String[]{"connect:", "first byte:", "body read:", "parse:", "model build:",
+                "adapter notify:", "icon load:", "bind:"}) {
+            assertTrue(step, out.toString().contains(step));
+        }
+    }
+}
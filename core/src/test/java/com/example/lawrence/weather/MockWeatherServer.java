@@ -0,0 +1,171 @@
+package com.example.lawrence.weather;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+// A local stand-in for api.openweathermap.org, for the JVM tests.
+// Serves one recorded forecast with an ETag, answers conditional requests with 304,
+// gzips the body when asked to, and records what it saw.
+// Faults can be injected to test how the client copes: a delay before every answer, 503 for
+// every request or just for the next few, connections dropped without an answer, and a body
+// that stops halfway for a while.
+public class MockWeatherServer {
+
+    public static final String ETAG = "\"forecast-v1\"";
+
+    private final HttpServer server;
+    private final byte[] forecast;
+
+    // remote port of every request, requests from the same port reused a connection
+    private final List<Integer> clientPorts = Collections.synchronizedList(new ArrayList<Integer>());
+    private volatile long bodyBytesSent;
+    private volatile long delayMillis; // simulated server/network latency per request
+    private volatile boolean failing; // answer every request with 503
+    private final AtomicInteger failNext = new AtomicInteger(); // answer this many more with 503
+    private final AtomicInteger dropNext = new AtomicInteger(); // close this many more without an answer
+    private volatile long stallBodyMillis; // pause halfway through the body
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    public MockWeatherServer(byte[] forecast) throws IOException {
+        this.forecast = forecast;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                sleep(delayMillis);
+                respond(exchange);
+            }
+        });
+        server.setExecutor(executor); // answer requests in parallel, like a real server
+        server.start();
+    }
+
+    public URL url(String path) throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    public List<Integer> getClientPorts() {
+        return clientPorts;
+    }
+
+    public long getBodyBytesSent() {
+        return bodyBytesSent;
+    }
+
+    // make every response take at least delayMillis
+    public void setDelay(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    // make the server answer "503 Service Unavailable" (true) or work normally again (false)
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    // answer the next count requests with "503 Service Unavailable", then work normally again
+    public void failNext(int count) {
+        failNext.set(count);
+    }
+
+    // close the connection of the next count requests without sending anything back
+    public void dropNext(int count) {
+        dropNext.set(count);
+    }
+
+    // send half of the body, wait stallMillis, then send the rest
+    public void setStallBody(long stallMillis) {
+        this.stallBodyMillis = stallMillis;
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static boolean takeOne(AtomicInteger counter) {
+        int left;
+        do {
+            left = counter.get();
+            if (left <= 0) {
+                return false;
+            }
+        } while (!counter.compareAndSet(left, left - 1));
+        return true;
+    }
+
+    private static void sleep(long millis) {
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        if (takeOne(dropNext)) {
+            exchange.close();
+            return;
+        }
+        // like many servers, the 304 and the error say "gzip" too, even though they have no body
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean gzipped = acceptEncoding != null && acceptEncoding.contains("gzip");
+        if (gzipped) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+
+        if (failing || takeOne(failNext)) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.getResponseHeaders().set("ETag", ETAG);
+
+        if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] body = forecast;
+        if (gzipped) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+            gzip.write(body);
+            gzip.close();
+            body = compressed.toByteArray();
+        }
+
+        // counted before it's sent: the client can finish reading it before close() returns here
+        bodyBytesSent += body.length;
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        if (stallBodyMillis > 0) {
+            out.write(body, 0, body.length / 2);
+            out.flush();
+            sleep(stallBodyMillis);
+            out.write(body, body.length / 2, body.length - body.length / 2);
+        } else {
+            out.write(body);
+        }
+        out.close();
+    }
+}
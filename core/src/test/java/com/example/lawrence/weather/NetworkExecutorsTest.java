@@ -0,0 +1,153 @@
+package com.example.lawrence.weather;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class NetworkExecutorsTest {
+
+    @Test
+    public void iconLoadsDoNotQueueBehindSlowForecast() throws Exception {
+        final CountDownLatch forecastStarted = new CountDownLatch(1);
+        final CountDownLatch releaseForecast = new CountDownLatch(1);
+        final CountDownLatch iconDone = new CountDownLatch(1);
+
+        // a forecast request that hangs until we let it go
+        NetworkExecutors.FORECAST.execute(new Runnable() {
+            @Override
+            public void run() {
+                forecastStarted.countDown();
+                await(releaseForecast);
+            }
+        });
+        assertTrue(forecastStarted.await(1, TimeUnit.SECONDS));
+
+        try {
+            NetworkExecutors.ICONS.execute(new Runnable() {
+                @Override
+                public void run() {
+                    iconDone.countDown();
+                }
+            });
+
+            assertTrue("icon load waited for the forecast", iconDone.await(1, TimeUnit.SECONDS));
+        } finally {
+            releaseForecast.countDown();
+        }
+    }
+
+    @Test
+    public void singleSerialExecutorWouldBlock() throws Exception {
+        // what AsyncTask.execute() did before: one thread for everything
+        ExecutorService serial = Executors.newSingleThreadExecutor();
+        final CountDownLatch releaseForecast = new CountDownLatch(1);
+        final CountDownLatch iconDone = new CountDownLatch(1);
+        try {
+            serial.execute(new Runnable() {
+                @Override
+                public void run() {
+                    await(releaseForecast);
+                }
+            });
+            serial.execute(new Runnable() {
+                @Override
+                public void run() {
+                    iconDone.countDown();
+                }
+            });
+
+            assertFalse(iconDone.await(200, TimeUnit.MILLISECONDS));
+        } finally {
+            releaseForecast.countDown();
+            serial.shutdown();
+        }
+    }
+
+    @Test
+    public void fullQueueCancelsOldestTask() throws Exception {
+        ThreadPoolExecutor pool = NetworkExecutors.newPool("test", 1, 2);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    await(release);
+                }
+            });
+
+            FutureTask<String> oldest = task("oldest");
+            FutureTask<String> middle = task("middle");
+            FutureTask<String> newest = task("newest");
+            pool.execute(oldest);
+            pool.execute(middle);
+            pool.execute(newest); // queue is full, "oldest" has to go
+
+            assertTrue(oldest.isCancelled());
+            release.countDown();
+            assertEquals("middle", middle.get(1, TimeUnit.SECONDS));
+            assertEquals("newest", newest.get(1, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void plainRunnablesAreNeverDropped() throws Exception {
+        ThreadPoolExecutor pool = NetworkExecutors.newPool("test", 1, 2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch plainDone = new CountDownLatch(1);
+        try {
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    await(release);
+                }
+            });
+
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    plainDone.countDown();
+                }
+            });
+            FutureTask<String> future = task("future");
+            FutureTask<String> newest = task("newest");
+            pool.execute(future);
+            pool.execute(newest); // queue is full, the Future goes even though it's newer
+
+            assertTrue(future.isCancelled());
+            release.countDown();
+            assertTrue(plainDone.await(1, TimeUnit.SECONDS));
+            assertEquals("newest", newest.get(1, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    private static FutureTask<String> task(final String result) {
+        return new FutureTask<>(new Callable<String>() {
+            @Override
+            public String call() {
+                return result;
+            }
+        });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
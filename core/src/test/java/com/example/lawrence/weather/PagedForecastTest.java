@@ -0,0 +1,105 @@
+package com.example.lawrence.weather;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PagedForecastTest {
+
+    private static final int PAGE_SIZE = 8;
+    private static final int MAX_PAGES = 4;
+
+    // pages the forecast asked for, answered by the test
+    private final List<Integer> requested = new ArrayList<>();
+    private PagedForecast forecast;
+
+    @Before
+    public void setUp() {
+        forecast = new PagedForecast(PAGE_SIZE, MAX_PAGES, new PagedForecast.PageLoader() {
+            @Override
+            public void load(int page) {
+                requested.add(page);
+            }
+        });
+    }
+
+    @Test
+    public void missingPageIsRequestedOnce() {
+        forecast.reset(40);
+
+        assertNull(forecast.get(17));
+        assertNull(forecast.get(18));
+        assertEquals(1, requested.size());
+        assertEquals(2, (int) requested.get(0));
+
+        forecast.onPageLoaded(2, page(2, PAGE_SIZE));
+        assertEquals(16 + 2, forecast.get(18).getTimeStamp());
+    }
+
+    @Test
+    public void failedPageIsRequestedAgain() {
+        forecast.reset(40);
+
+        assertNull(forecast.get(17));
+        forecast.onPageFailed(2);
+        assertNull(forecast.get(18));
+        assertEquals(2, requested.size());
+        assertEquals(2, (int) requested.get(1));
+    }
+
+    @Test
+    public void memoryStaysFlatWhileScrolling() {
+        forecast.reset(10000);
+
+        // scroll down through the whole forecast, answering every page request right away
+        for (int position = 0; position < forecast.size(); ++position) {
+            if (forecast.get(position) == null) {
+                int page = requested.get(requested.size() - 1);
+                forecast.onPageLoaded(page, page(page, PAGE_SIZE));
+                assertEquals(position, forecast.get(position).getTimeStamp());
+            }
+            assertTrue(forecast.getPagesInMemory() <= MAX_PAGES);
+        }
+        assertEquals(10000 / PAGE_SIZE, requested.size());
+
+        // scrolling back up reads the first page again
+        assertNull(forecast.get(0));
+    }
+
+    @Test
+    public void appendGrowsTheForecast() {
+        forecast.reset(0);
+
+        assertEquals(PAGE_SIZE, forecast.append(0, page(0, PAGE_SIZE)));
+        assertEquals(3, forecast.append(1, page(1, 3)));
+        assertEquals(PAGE_SIZE + 3, forecast.size());
+        assertEquals(PAGE_SIZE + 2, forecast.get(PAGE_SIZE + 2).getTimeStamp());
+        assertTrue(requested.isEmpty());
+    }
+
+    @Test
+    public void refreshReplacesPagesAndShrinks() {
+        forecast.reset(40);
+        forecast.onPageLoaded(4, page(4, PAGE_SIZE)); // not requested, ignored
+        assertNull(forecast.get(33));
+
+        assertEquals(0, forecast.append(0, page(0, PAGE_SIZE)));
+        forecast.truncate(20);
+
+        assertEquals(20, forecast.size());
+        assertEquals(3, forecast.get(3).getTimeStamp());
+    }
+
+    // count weathers whose timestamp is their position
+    private static List<Weather> page(int page, int count) {
+        List<Weather> weathers = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            weathers.add(new Weather(page * PAGE_SIZE + i, 50, 60, 40, "clear sky", "01d"));
+        }
+        return weathers;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.lawrence.weather;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PrefetchPolicyTest {
+
+    // a clock that only moves when the test says so
+    static class FakeClock implements Clock {
+        long now = TimeUnit.DAYS.toMillis(1000);
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+
+        void advance(long millis) {
+            now += millis;
+        }
+    }
+
+    private final FakeClock clock = new FakeClock();
+
+    @Test
+    public void onlyRunsOnUnmeteredNetworkWithBattery() {
+        PrefetchPolicy policy = new PrefetchPolicy(clock, 0, 0);
+
+        assertTrue(policy.canRun(true, false, false, false));
+        assertFalse("no connection", policy.canRun(false, false, false, false));
+        assertFalse("metered", policy.canRun(true, true, false, false));
+        assertFalse("battery low", policy.canRun(true, false, true, false));
+        assertTrue("battery low but charging", policy.canRun(true, false, true, true));
+    }
+
+    @Test
+    public void backsOffExponentiallyAfterFailures() {
+        PrefetchPolicy policy = new PrefetchPolicy(clock, 0, 0);
+        assertTrue(policy.isDue());
+
+        long expected = PrefetchPolicy.FIRST_BACKOFF;
+        for (int i = 0; i < 3; ++i) {
+            policy.onFailure();
+            clock.advance(expected - 1);
+            assertFalse(policy.isDue());
+            clock.advance(1);
+            assertTrue(policy.isDue());
+            expected *= 2;
+        }
+        assertEquals(3, policy.getConsecutiveFailures());
+    }
+
+    @Test
+    public void backoffIsCapped() {
+        PrefetchPolicy policy = new PrefetchPolicy(clock, 0, 0);
+        for (int i = 0; i < 50; ++i) {
+            policy.onFailure();
+        }
+        assertEquals(clock.now + PrefetchPolicy.MAX_BACKOFF, policy.getNextRunAt());
+    }
+
+    @Test
+    public void successResetsBackoff() {
+        PrefetchPolicy policy = new PrefetchPolicy(clock, 5, 0);
+        policy.onSuccess();
+
+        assertEquals(0, policy.getConsecutiveFailures());
+        assertFalse("ran just now", policy.isDue());
+        clock.advance(PrefetchPolicy.MIN_GAP);
+        assertTrue(policy.isDue());
+    }
+
+    @Test
+    public void skipsRecentlyDownloadedCities() {
+        PrefetchPolicy policy = new PrefetchPolicy(clock, 0, 0);
+        ForecastCache.Entry entry = new ForecastCache.Entry("boston", "Boston", clock.now,
+                Collections.<Weather>emptyList(), null, 0);
+
+        assertTrue(policy.isWorthRefreshing(null));
+        assertFalse(policy.isWorthRefreshing(entry));
+        clock.advance(PrefetchPolicy.MIN_AGE);
+        assertTrue(policy.isWorthRefreshing(entry));
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.lawrence.weather;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// a prefetch run against the local mock server, with a fake clock
+public class PrefetcherTest {
+
+    private static final List<String> CITIES = Arrays.asList("New York", "London", "Paris");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final PrefetchPolicyTest.FakeClock clock = new PrefetchPolicyTest.FakeClock();
+    private MockWeatherServer server;
+    private ThreadPoolExecutor pool;
+    private ForecastCache cache;
+    private ResilientCaller caller;
+    private Prefetcher prefetcher;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWeatherServer(ForecastParserTest.load("forecast_daily_16.json"));
+        pool = NetworkExecutors.newPool("test", 4, 16);
+        cache = new ForecastCache(new File(folder.getRoot(), "forecasts"), 30 * 60 * 1000L);
+        caller = new ResilientCaller(new RetryPolicy(1, 1, 1, new Random(1)), new CircuitBreaker(clock, 5, 30000),
+                ResilientCaller.THREAD_SLEEPER);
+        ForecastUrls urls = new ForecastUrls(server.url("/forecast/daily?q=").toString(), "&units=imperial", "&APPID=key");
+        prefetcher = new Prefetcher(new ForecastFetcher(new HttpClient(), cache, clock), cache, urls, caller, pool, 4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        server.stop();
+    }
+
+    @Test
+    public void refreshesAllCitiesInOneRun() throws Exception {
+        Prefetcher.Result result = prefetcher.run(CITIES, new PrefetchPolicy(clock, 0, 0));
+
+        assertEquals(3, result.getRefreshed());
+        assertFalse(result.isFailure());
+        for (String city : CITIES) {
+            assertNotNull(city, cache.get(city));
+        }
+        assertEquals(3, server.getClientPorts().size());
+    }
+
+    @Test
+    public void skipsCitiesDownloadedRecently() throws Exception {
+        prefetcher.run(CITIES, new PrefetchPolicy(clock, 0, 0));
+
+        Prefetcher.Result result = prefetcher.run(CITIES, new PrefetchPolicy(clock, 0, 0));
+        assertEquals(0, result.getRefreshed());
+        assertEquals(3, result.getSkipped());
+        assertEquals(3, server.getClientPorts().size()); // no requests for the second run
+
+        clock.advance(PrefetchPolicy.MIN_AGE);
+        result = prefetcher.run(CITIES, new PrefetchPolicy(clock, 0, 0));
+        assertEquals(3, result.getRefreshed());
+    }
+
+    @Test
+    public void failedRunBacksOff() throws Exception {
+        server.setFailing(true);
+        PrefetchPolicy policy = new PrefetchPolicy(clock, 0, 0);
+
+        Prefetcher.Result result = prefetcher.run(CITIES, policy);
+        assertTrue(result.isFailure());
+        policy.onFailure(); // what PrefetchService does with a failed run
+        assertFalse(policy.isDue());
+
+        server.setFailing(false);
+        clock.advance(PrefetchPolicy.FIRST_BACKOFF);
+        assertTrue(policy.isDue());
+        assertFalse(prefetcher.run(CITIES, policy).isFailure());
+    }
+
+    @Test
+    public void slowRunTimesOut() throws Exception {
+        server.setDelay(2000);
+        ForecastUrls urls = new ForecastUrls(server.url("/forecast/daily?q=").toString(), "&units=imperial", "&APPID=key");
+        prefetcher = new Prefetcher(new ForecastFetcher(new HttpClient(), cache, clock), cache, urls, caller, pool, 4, 200);
+
+        long start = System.nanoTime();
+        Prefetcher.Result result = prefetcher.run(CITIES, new PrefetchPolicy(clock, 0, 0));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("took " + elapsed + " ms", elapsed < 1000);
+        assertEquals(0, result.getRefreshed());
+        assertEquals(3, result.getFailed());
+        assertTrue(result.isFailure());
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.lawrence.weather;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+// timeouts, retries and the circuit breaker against faults injected into the local mock server
+public class ResilientCallerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final PrefetchPolicyTest.FakeClock clock = new PrefetchPolicyTest.FakeClock();
+    private final List<Long> sleeps = new ArrayList<>();
+    private final ResilientCaller.Sleeper sleeper = new ResilientCaller.Sleeper() {
+        @Override
+        public void sleep(long millis) {
+            sleeps.add(millis); // don't actually wait
+        }
+    };
+
+    private MockWeatherServer server;
+    private HttpClient client;
+    private ForecastCache cache;
+    private ForecastFetcher fetcher;
+    private URL url;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWeatherServer(ForecastParserTest.load("forecast_3hour_40.json"));
+        client = new HttpClient(1000, 300);
+        cache = new ForecastCache(new File(folder.getRoot(), "forecasts"), 0);
+        fetcher = new ForecastFetcher(client, cache, clock);
+        url = server.url("/forecast?q=new%20york");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void readTimeoutEndsAStalledResponse() throws Exception {
+        server.setDelay(3000);
+
+        long start = System.nanoTime();
+        try {
+            client.get(url).close();
+            fail("no timeout");
+        } catch (SocketTimeoutException expected) {
+            long millis = (System.nanoTime() - start) / 1000000;
+            assertTrue(millis + " ms", millis < 2000);
+        }
+    }
+
+    @Test
+    public void readTimeoutEndsABodyThatStops() throws Exception {
+        server.setStallBody(3000);
+
+        try {
+            fetcher.fetch("New York", url);
+            fail("no timeout");
+        } catch (SocketTimeoutException expected) {
+        }
+    }
+
+    @Test
+    public void retriesServerErrorsWithBackoff() throws Exception {
+        server.failNext(2);
+
+        FetchResult<ForecastCache.Entry> result = fetcher.fetch("New York", url, caller(3, breaker(5)));
+
+        assertEquals(FetchResult.Status.FRESH, result.getStatus());
+        assertEquals(40, result.getValue().getForecast().size());
+        assertEquals(3, server.getClientPorts().size());
+        assertEquals(2, sleeps.size());
+        assertTrue(sleeps.toString(), sleeps.get(0) <= 100 && sleeps.get(1) <= 200);
+    }
+
+    @Test
+    public void retriesDroppedConnections() throws Exception {
+        server.dropNext(1);
+
+        FetchResult<ForecastCache.Entry> result = fetcher.fetch("New York", url, caller(3, breaker(5)));
+
+        assertEquals(FetchResult.Status.FRESH, result.getStatus());
+        assertTrue(server.getClientPorts().size() >= 2);
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() throws Exception {
+        server.setFailing(true);
+
+        FetchResult<ForecastCache.Entry> result = fetcher.fetch("New York", url, caller(3, breaker(5)));
+
+        assertEquals(FetchResult.Status.FAILED, result.getStatus());
+        assertEquals(FetchResult.Failure.SERVER_ERROR, result.getFailure());
+        assertNull(result.getValue());
+        assertEquals(3, server.getClientPorts().size());
+    }
+
+    @Test
+    public void servesCachedForecastWhileTheCircuitIsOpen() throws Exception {
+        CircuitBreaker breaker = breaker(2);
+        ResilientCaller caller = caller(1, breaker);
+        assertEquals(FetchResult.Status.FRESH, fetcher.fetch("New York", url, caller).getStatus());
+
+        server.setFailing(true);
+        for (int i = 0; i < 2; i++) {
+            FetchResult<ForecastCache.Entry> result = fetcher.fetch("New York", url, caller);
+            assertEquals(FetchResult.Status.CACHED, result.getStatus());
+            assertEquals(FetchResult.Failure.SERVER_ERROR, result.getFailure());
+            assertEquals(40, result.getValue().getForecast().size());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // the server isn't asked anymore, the saved copy comes back right away
+        int requests = server.getClientPorts().size();
+        FetchResult<ForecastCache.Entry> result = fetcher.fetch("New York", url, caller);
+        assertEquals(FetchResult.Status.CACHED, result.getStatus());
+        assertEquals(FetchResult.Failure.UNAVAILABLE, result.getFailure());
+        assertEquals(requests, server.getClientPorts().size());
+
+        // it's back, the trial request closes the circuit
+        server.setFailing(false);
+        clock.advance(30000);
+        assertEquals(FetchResult.Status.FRESH, fetcher.fetch("New York", url, caller).getStatus());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void diskFailureIsNotRetried() throws Exception {
+        // a file where the cache wants its directory, so saving the download fails
+        ForecastCache broken = new ForecastCache(folder.newFile("not-a-directory"), 0);
+        CircuitBreaker breaker = breaker(1);
+
+        FetchResult<ForecastCache.Entry> result =
+                new ForecastFetcher(client, broken, clock).fetch("New York", url, caller(3, breaker));
+
+        assertEquals(FetchResult.Status.FAILED, result.getStatus());
+        assertEquals("not retried", 1, server.getClientPorts().size());
+        assertEquals("not the server's fault", CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void timeoutIsReportedAsSuch() throws Exception {
+        server.setDelay(3000);
+
+        FetchResult<ForecastCache.Entry> result = fetcher.fetch("New York", url, caller(1, breaker(5)));
+
+        assertEquals(FetchResult.Status.FAILED, result.getStatus());
+        assertEquals(FetchResult.Failure.TIMEOUT, result.getFailure());
+    }
+
+    @Test
+    public void hourlyDownloadIsNotRetriedAfterItHandedOutPages() throws Exception {
+        ForecastPageStore store = new ForecastPageStore(new File(folder.getRoot(), "hourly"), 0);
+        HourlyForecastFetcher hourly = new HourlyForecastFetcher(client, store, clock);
+        final List<Integer> pages = new ArrayList<>();
+        HourlyForecastFetcher.Listener listener = new HourlyForecastFetcher.Listener() {
+            @Override
+            public void onCity(String city) {}
+
+            @Override
+            public void onPage(int page, List<Weather> weathers) {
+                pages.add(page);
+            }
+        };
+        server.setStallBody(3000);
+
+        FetchResult<ForecastPageStore.Index> result = hourly.fetch("New York", url, listener, caller(3, breaker(5)));
+
+        assertFalse("pages before the stall", pages.isEmpty());
+        assertEquals(FetchResult.Status.FAILED, result.getStatus());
+        assertEquals(FetchResult.Failure.TIMEOUT, result.getFailure());
+        assertEquals("not retried", 1, server.getClientPorts().size());
+    }
+
+    @Test
+    public void hourlyFallsBackToTheSavedForecast() throws Exception {
+        ForecastPageStore store = new ForecastPageStore(new File(folder.getRoot(), "hourly"), 0);
+        HourlyForecastFetcher hourly = new HourlyForecastFetcher(client, store, clock);
+        HourlyForecastFetcher.Listener listener = new HourlyForecastFetcher.Listener() {
+            @Override
+            public void onCity(String city) {}
+
+            @Override
+            public void onPage(int page, List<Weather> weathers) {}
+        };
+        ResilientCaller caller = caller(2, breaker(5));
+        assertEquals(FetchResult.Status.FRESH, hourly.fetch("New York", url, listener, caller).getStatus());
+
+        server.setFailing(true);
+        FetchResult<ForecastPageStore.Index> result = hourly.fetch("New York", url, listener, caller);
+
+        assertEquals(FetchResult.Status.CACHED, result.getStatus());
+        assertEquals(40, result.getValue().getCount());
+        assertEquals(3, server.getClientPorts().size());
+    }
+
+    private CircuitBreaker breaker(int failures) {
+        return new CircuitBreaker(clock, failures, 30000);
+    }
+
+    private ResilientCaller caller(int attempts, CircuitBreaker breaker) {
+        return new ResilientCaller(new RetryPolicy(attempts, 100, 1000, new Random(1)), breaker, sleeper);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.lawrence.weather;
+
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void delaysGrowExponentiallyUpToTheMaximum() {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1000, new Random(1));
+
+        long[] ceilings = {100, 200, 400, 800, 1000, 1000};
+        for (int retry = 1; retry <= ceilings.length; retry++) {
+            long max = 0;
+            for (int i = 0; i < 1000; i++) {
+                long delay = policy.delayMillis(retry);
+                assertTrue("retry " + retry + ": " + delay, delay >= 0 && delay <= ceilings[retry - 1]);
+                max = Math.max(max, delay);
+            }
+            assertTrue("retry " + retry + " uses the whole range: " + max, max > ceilings[retry - 1] * 9 / 10);
+        }
+    }
+
+    @Test
+    public void delaysAreJittered() {
+        RetryPolicy policy = new RetryPolicy(3, 1000, 1000, new Random(1));
+
+        // clients that failed together shouldn't come back together
+        long first = policy.delayMillis(1);
+        boolean differs = false;
+        for (int i = 0; i < 10; i++) {
+            differs |= policy.delayMillis(1) != first;
+        }
+        assertTrue(differs);
+    }
+
+    @Test
+    public void retriesOnlyFailuresThatMayGoAway() {
+        assertTrue(RetryPolicy.isTransient(new ConnectException()));
+        assertTrue(RetryPolicy.isTransient(new SocketTimeoutException()));
+        assertTrue(RetryPolicy.isTransient(new UnknownHostException("api.openweathermap.org")));
+        assertTrue(RetryPolicy.isTransient(new SocketException("Connection reset")));
+        assertTrue(RetryPolicy.isTransient(new EOFException("unexpected end of stream")));
+        assertTrue(RetryPolicy.isTransient(new HttpClient.HttpException(503, "")));
+        assertTrue(RetryPolicy.isTransient(new HttpClient.HttpException(429, "")));
+
+        assertFalse(RetryPolicy.isTransient(new HttpClient.HttpException(404, "")));
+        assertFalse(RetryPolicy.isTransient(new HttpClient.HttpException(401, "")));
+        assertFalse(RetryPolicy.isTransient(new JsonPullReader.MalformedJsonException("")));
+        assertFalse("cancelled", RetryPolicy.isTransient(new InterruptedIOException()));
+        assertFalse("local disk", RetryPolicy.isTransient(new IOException("Unable to write forecast.bin")));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.lawrence.weather;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+// Weather formatting, and a comparison with the old Weather that formatted everything up front
+public class WeatherTest {
+
+    private Locale defaultLocale;
+    private TimeZone defaultTimeZone;
+
+    @Before
+    public void setUp() {
+        defaultLocale = Locale.getDefault();
+        defaultTimeZone = TimeZone.getDefault();
+        Locale.setDefault(Locale.US);
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(defaultLocale);
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    public void formatsLikeBefore() {
+        Weather weather = new Weather(1457020800L, 31.4, 45.6, 73, "light rain", "10d");
+        LegacyWeather legacy = new LegacyWeather(1457020800L, 31.4, 45.6, 73, "light rain", "10d");
+
+        assertEquals(legacy.minTemp, weather.getMinTemp());
+        assertEquals(legacy.maxTemp, weather.getMaxTemp());
+        assertEquals(legacy.humidity, weather.getHumidity());
+        assertEquals(legacy.iconURL, weather.getIconURL());
+        assertEquals(legacy.dayOfWeek, weather.getDayOfWeek());
+    }
+
+    @Test
+    public void dayOfWeekUsesDeviceTimeZone() {
+        long timeStamp = 1457049600L; // Friday 2016-03-04 00:00 UTC
+        assertEquals("Friday", new Weather(timeStamp, 0, 0, 0, "", "01d").getDayOfWeek());
+
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"));
+        assertEquals("Thursday", new Weather(timeStamp, 0, 0, 0, "", "01d").getDayOfWeek());
+
+        // before 1970 days have to be rounded down, not towards zero
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        assertEquals("Wednesday", new Weather(-86400L, 0, 0, 0, "", "01d").getDayOfWeek());
+    }
+
+    @Test
+    public void convertsToCelsius() {
+        Weather weather = new Weather(0, 32, 212, 50, "clear sky", "01d");
+
+        assertEquals("0\u00B0C", weather.getMinTemp(TemperatureUnit.CELSIUS));
+        assertEquals("100\u00B0C", weather.getMaxTemp(TemperatureUnit.CELSIUS));
+        assertEquals("212\u00B0F", weather.getMaxTemp(TemperatureUnit.FAHRENHEIT));
+        assertEquals(212, weather.getMaxTempValue(), 0);
+    }
+
+    @Test
+    public void followsLocaleChanges() {
+        Weather weather = new Weather(0, 1234, 0, 50, "", "01d");
+        assertEquals("1,234\u00B0F", weather.getMinTemp());
+
+        Locale.setDefault(Locale.GERMANY);
+        assertEquals("1.234\u00B0F", weather.getMinTemp());
+        assertEquals("Donnerstag", weather.getDayOfWeek());
+    }
+
+    // Weather as it was: every value formatted in the constructor with new formatters
+    private static class LegacyWeather {
+        final String dayOfWeek;
+        final String minTemp;
+        final String maxTemp;
+        final String humidity;
+        final String description;
+        final String iconURL;
+
+        LegacyWeather(long timeStamp, double minTemp, double maxTemp,
+                      double humidity, String description, String iconName) {
+            NumberFormat numberFormat = NumberFormat.getInstance();
+            numberFormat.setMaximumFractionDigits(0);
+
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(timeStamp * 1000);
+            this.dayOfWeek = new SimpleDateFormat("EEEE").format(calendar.getTime());
+
+            this.minTemp = numberFormat.format(minTemp) + "\u00B0F";
+            this.maxTemp = numberFormat.format(maxTemp) + "\u00B0F";
+            this.humidity = NumberFormat.getPercentInstance().format(humidity / 100.0);
+            this.description = description;
+            this.iconURL = "http://openweathermap.org/img/w/" + iconName + ".png";
+        }
+    }
+}